@@ -0,0 +1,35 @@
+package opt01;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The portfolio the {@link LpSolver} backends are compared on. It stops short of the largest
+ * {@link PortfolioState}: the in-process simplex takes seconds per solve at 560 x 200 and more
+ * than two minutes at 5600 x 2000, which would stall the whole run.
+ */
+@State(Scope.Benchmark)
+public class BackendPortfolioState extends SyntheticState {
+
+	@Param({ "56", "560" })
+	public int investments;
+
+	@Param({ "20", "200" })
+	public int needs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		build(investments, needs);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		release();
+	}
+}
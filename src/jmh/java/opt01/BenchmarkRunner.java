@@ -0,0 +1,39 @@
+package opt01;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Takes the usual JMH command line and, unless told
+ * otherwise, writes JSON results to target/jmh-result.json with the GC profiler on, so
+ * throughput and allocation rate can be compared across releases.
+ */
+public class BenchmarkRunner {
+
+	static final String RESULT_FILE = "target/jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(PipelineBenchmark.class.getSimpleName());
+		}
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			options.result(RESULT_FILE);
+		}
+		if (commandLine.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+
+		new Runner(options.build()).run();
+	}
+}
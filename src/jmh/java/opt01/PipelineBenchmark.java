@@ -0,0 +1,134 @@
+package opt01;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.ortools.linearsolver.MPSolver;
+
+/**
+ * One benchmark per stage of {@link OptimizeInvestments#main}: workbook parsing, the eligible
+ * pairs and their gains, building the OR-Tools model, solving it, and the whole pipeline end to
+ * end. The pluggable {@link LpSolver} backends are compared on the sizes of {@link BackendPortfolioState}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+	static {
+		System.loadLibrary("jniortools");
+	}
+
+	@Benchmark
+	public Portfolio loadWorkbook(PortfolioState state) throws IOException {
+		return StreamingWorkbookLoader.load(state.workbook.getPath());
+	}
+
+	@Benchmark
+	public EligiblePairs buildEligiblePairs(PortfolioState state) {
+		Portfolio portfolio = state.portfolio;
+		return EligiblePairs.build(portfolio.investments, portfolio.needs);
+	}
+
+	@Benchmark
+	public int buildModel(PortfolioState state) {
+
+		Portfolio portfolio = state.portfolio;
+		MPSolver solver = MPSolver.createSolver("Assignment", BackendSelector.LP_SOLVER);
+		try {
+			SparseModelBuilder model = new SparseModelBuilder(solver, state.pairs, portfolio.investments,
+					portfolio.needs, false);
+			model.initializeVariables();
+			model.limitsPerInvestmentOption();
+			model.limitPerNeed();
+			return solver.numConstraints();
+		} finally {
+			solver.delete();
+		}
+	}
+
+	@Benchmark
+	public int buildModelBulk(PortfolioState state) {
+
+		MPSolver solver = MPSolver.createSolver("Assignment", BackendSelector.LP_SOLVER);
+		try {
+			new BulkModelBuilder(solver, state.lp, false).load();
+			return solver.numConstraints();
+		} finally {
+			solver.delete();
+		}
+	}
+
+	@Benchmark
+	public MPSolver.ResultStatus solve(BuiltModel built) {
+		return built.solver.solve();
+	}
+
+	@Benchmark
+	public LpSolution solveLinearProgram(BackendPortfolioState state, Backend backend) {
+		return backend.solver.solve(state.lp);
+	}
+
+	@Benchmark
+	public OptimizationResult endToEnd(BackendPortfolioState state, Backend backend) throws IOException {
+		Portfolio portfolio = StreamingWorkbookLoader.load(state.workbook.getPath());
+		return new OptimizationSession(state.workbook.getName(), portfolio, backend.solver).solve();
+	}
+
+	/**
+	 * A freshly built model for every call to {@link #solve}, so only the solve itself is measured.
+	 */
+	@State(Scope.Thread)
+	public static class BuiltModel {
+
+		MPSolver solver;
+
+		@Setup(Level.Invocation)
+		public void build(PortfolioState state) {
+
+			Portfolio portfolio = state.portfolio;
+			solver = MPSolver.createSolver("Assignment", BackendSelector.LP_SOLVER);
+			SparseModelBuilder model = new SparseModelBuilder(solver, state.pairs, portfolio.investments,
+					portfolio.needs, false);
+			model.initializeVariables();
+			model.limitsPerInvestmentOption();
+			model.limitPerNeed();
+			model.setupObjective();
+		}
+
+		@TearDown(Level.Invocation)
+		public void release() {
+			solver.delete();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Backend {
+
+		@Param({ BackendSelector.AUTO_BACKEND, LpSolver.JAVA_BACKEND })
+		public String backend;
+
+		LpSolver solver;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			solver = LpSolver.forName(backend);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package opt01;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The synthetic portfolio shared by the stage benchmarks, sized investments x needs.
+ */
+@State(Scope.Benchmark)
+public class PortfolioState extends SyntheticState {
+
+	@Param({ "56", "560", "5600" })
+	public int investments;
+
+	@Param({ "20", "200", "2000" })
+	public int needs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		build(investments, needs);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		release();
+	}
+}
@@ -0,0 +1,106 @@
+package opt01;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Reproducible portfolios of any size for the benchmarks, with the same shape as data.xlsx:
+ * a few accounts with a rate per term of the ladder, needs due up to two years out.
+ */
+public class SyntheticPortfolio {
+
+	static final long[] TERMS = OptimizeInvestments.loadTerms();
+	static final long SEED = 42;
+
+	public static Portfolio generate(int investmentRows, int needRows) {
+
+		Random random = new Random(SEED);
+		int accounts = Math.max(1, investmentRows / TERMS.length);
+
+		InvestmentBook investments = new InvestmentBook();
+		HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+		for (int r = 0; r < investmentRows; r++) {
+			String account = "Account" + (r % accounts);
+			long term = TERMS[(r / accounts) % TERMS.length];
+			double rate = 0.02 + 0.10 * random.nextDouble();
+			investments.add(account, rate, term);
+		}
+		for (int account = 0; account < investments.accountCount; account++) {
+			String name = investments.accountName[account];
+			double max = 50000 + 1000000 * random.nextDouble();
+			limits.put(name, new InvestmentLimits(name, 1, max));
+			investments.setAccountLimits(account, 1, max);
+		}
+
+		NeedBook needs = new NeedBook();
+		for (int c = 0; c < needRows; c++) {
+			needs.add("Need" + c, 1000 + 100000 * random.nextDouble(), 1 + random.nextInt(720));
+		}
+
+		return new Portfolio(limits, needs, investments);
+	}
+
+	/**
+	 * Writes the portfolio as a workbook the {@link StreamingWorkbookLoader} can read back.
+	 */
+	public static void writeWorkbook(Portfolio portfolio, String path) throws IOException {
+
+		SXSSFWorkbook workbook = new SXSSFWorkbook();
+		try {
+			Sheet limitsSheet = header(workbook.createSheet(StreamingWorkbookLoader.LIMITS_SHEET), "Name", "Min", "Max");
+			int rowNum = 1;
+			for (InvestmentLimits limit : portfolio.limits.values()) {
+				Row row = limitsSheet.createRow(rowNum++);
+				row.createCell(0).setCellValue(limit.name);
+				row.createCell(1).setCellValue(limit.minInvestment);
+				row.createCell(2).setCellValue(limit.maxInvestment);
+			}
+
+			Sheet needsSheet = header(workbook.createSheet(StreamingWorkbookLoader.NEEDS_SHEET), "Name", "Amount",
+					"Days");
+			NeedBook needs = portfolio.needs;
+			for (int c = 0; c < needs.size; c++) {
+				Row row = needsSheet.createRow(c + 1);
+				row.createCell(0).setCellValue(needs.name[c]);
+				row.createCell(1).setCellValue(needs.amount[c]);
+				row.createCell(2).setCellValue(needs.daysUntilDue[c]);
+			}
+
+			Sheet investmentsSheet = header(workbook.createSheet(StreamingWorkbookLoader.INVESTMENTS_SHEET), "Name",
+					"Term", "Rate");
+			InvestmentBook investments = portfolio.investments;
+			for (int r = 0; r < investments.size; r++) {
+				Row row = investmentsSheet.createRow(r + 1);
+				row.createCell(0).setCellValue(investments.getAccountName(r));
+				row.createCell(1).setCellValue(investments.term[r]);
+				row.createCell(2).setCellValue(investments.rate[r]);
+			}
+
+			OutputStream out = new FileOutputStream(path);
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			workbook.dispose();
+			workbook.close();
+		}
+	}
+
+	private static Sheet header(Sheet sheet, String... titles) {
+
+		Row row = sheet.createRow(0);
+		for (int i = 0; i < titles.length; i++) {
+			row.createCell(i).setCellValue(titles[i]);
+		}
+		return sheet;
+	}
+}
@@ -0,0 +1,30 @@
+package opt01;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A synthetic portfolio of a given size, together with a workbook copy of it for the parsing
+ * benchmarks. The states that extend it only choose the sizes.
+ */
+public abstract class SyntheticState {
+
+	Portfolio portfolio;
+	EligiblePairs pairs;
+	LinearProgram lp;
+	File workbook;
+
+	void build(int investments, int needs) throws IOException {
+
+		portfolio = SyntheticPortfolio.generate(investments, needs);
+		pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		lp = LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+
+		workbook = File.createTempFile("opt01-" + investments + "x" + needs + "-", ".xlsx");
+		SyntheticPortfolio.writeWorkbook(portfolio, workbook.getPath());
+	}
+
+	void release() {
+		workbook.delete();
+	}
+}
@@ -0,0 +1,53 @@
+package opt01;
+
+/**
+ * Picks the OR-Tools engine from the size of the model: every variable of the allocation model is
+ * continuous, so PDLP for very large LPs and GLOP for the rest. The {@link SolverConfig} backend
+ * (opt01.solver or --backend=) pins one instead, for example --backend=CBC.
+ */
+public class BackendSelector implements LpSolver {
+
+	static final String AUTO_BACKEND = "AUTO";
+	static final String PDLP_NON_ZEROS_PROPERTY = "opt01.backend.pdlpNonZeros";
+	static final long DEFAULT_PDLP_NON_ZEROS = 5_000_000;
+
+	static final String LP_SOLVER = "GLOP";
+	static final String LARGE_LP_SOLVER = "PDLP";
+
+	private final SolverConfig config;
+
+	public BackendSelector() {
+		this(SolverConfig.DEFAULT);
+	}
+
+	public BackendSelector(SolverConfig config) {
+		this.config = config;
+	}
+
+	@Override
+	public String name() {
+		return AUTO_BACKEND;
+	}
+
+	@Override
+	public SolverConfig config() {
+		return config;
+	}
+
+	@Override
+	public LpSolution solve(LinearProgram lp) {
+		String solverId = config.orToolsEngine();
+		if (solverId == null) {
+			solverId = select(lp.nonZeros());
+		}
+		return new OrToolsLpSolver(solverId, LP_SOLVER, config).solve(lp);
+	}
+
+	public static String select(long nonZeros) {
+
+		if (nonZeros >= Long.getLong(PDLP_NON_ZEROS_PROPERTY, DEFAULT_PDLP_NON_ZEROS)) {
+			return LARGE_LP_SOLVER;
+		}
+		return LP_SOLVER;
+	}
+}
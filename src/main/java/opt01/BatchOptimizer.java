@@ -0,0 +1,96 @@
+package opt01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves many portfolios, one workbook per client, concurrently on a bounded pool.
+ * Every task loads its own workbook and runs its own {@link OptimizationSession}; the sessions share
+ * a {@link SolutionCache}, so identical portfolios are solved once.
+ */
+public class BatchOptimizer {
+
+	static final String THREADS_PROPERTY = "opt01.batch.threads";
+
+	private final int threads;
+	private final SolverConfig config;
+	private final SolutionCache cache = SolutionCache.fromProperties();
+	private long elapsedNanos;
+
+	public BatchOptimizer(int threads) {
+		this(threads, SolverConfig.fromProperties());
+	}
+
+	public BatchOptimizer(int threads, SolverConfig config) {
+		this.threads = Math.max(1, threads);
+		this.config = config;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		List<String> workbookPaths = new ArrayList<String>(Arrays.asList(args));
+		SolverConfig config = SolverConfig.fromProperties().withArguments(workbookPaths);
+		BatchOptimizer batch = new BatchOptimizer(
+				Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()), config);
+		List<OptimizationResult> results = batch.run(workbookPaths);
+
+		results.forEach(System.out::println);
+		System.out.println(batch.summary(results));
+	}
+
+	public List<OptimizationResult> run(List<String> workbookPaths) throws InterruptedException {
+
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<OptimizationResult>> futures = new ArrayList<Future<OptimizationResult>>();
+			for (String path : workbookPaths) {
+				futures.add(pool.submit(() -> solve(path)));
+			}
+
+			List<OptimizationResult> results = new ArrayList<OptimizationResult>();
+			for (Future<OptimizationResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+			elapsedNanos = System.nanoTime() - start;
+		}
+	}
+
+	public String summary(List<OptimizationResult> results) {
+
+		int solved = 0;
+		for (OptimizationResult result : results) {
+			if (result.status.hasSolution()) {
+				solved++;
+			}
+		}
+		double seconds = elapsedNanos / 1e9;
+		return "Portfolios: " + results.size() + " Solved: " + solved + " Threads: " + threads +
+			   " Time: " + String.format("%.3f", seconds) + " s" +
+			   " Throughput: " + String.format("%.1f", seconds > 0 ? results.size() / seconds : 0) + " portfolios/s" +
+			   "\nCache: " + cache;
+	}
+
+	private OptimizationResult solve(String path) {
+
+		long start = System.nanoTime();
+		try {
+			return new OptimizationSession(path, PortfolioSource.load(path), LpSolver.forConfig(config)).setCache(cache)
+					.solve();
+		} catch (Exception e) {
+			return OptimizationResult.failed(path, e, System.nanoTime() - start);
+		}
+	}
+}
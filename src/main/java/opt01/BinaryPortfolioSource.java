@@ -0,0 +1,45 @@
+package opt01;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Portfolios in the columnar {@link PortfolioSnapshot} layout, written without a source key: each
+ * column is one length-prefixed run of big-endian values, read straight off a memory map.
+ */
+public class BinaryPortfolioSource implements PortfolioSource {
+
+	static final byte[] NO_KEY = new byte[0];
+
+	/**
+	 * Converts any portfolio file, for example a workbook or a CSV export, to the binary format:
+	 * java opt01.BinaryPortfolioSource &lt;input&gt; &lt;output.portfolio&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 2) {
+			System.err.println("Usage: BinaryPortfolioSource <input> <output" + BINARY_SUFFIX + ">");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		Portfolio portfolio = PortfolioSource.load(args[0]);
+		write(portfolio, Paths.get(args[1]));
+		System.out.println("Wrote " + args[1] + ": " + portfolio.investments.size + " investments, "
+				+ portfolio.needs.size + " needs in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+
+	@Override
+	public Portfolio load(Path path) throws IOException {
+
+		Portfolio portfolio = PortfolioSnapshot.read(path, null);
+		if (portfolio == null) {
+			throw new IOException(path + " is not a portfolio file of version " + PortfolioSnapshot.VERSION);
+		}
+		return portfolio;
+	}
+
+	public static void write(Portfolio portfolio, Path path) throws IOException {
+		PortfolioSnapshot.write(portfolio, NO_KEY, path);
+	}
+}
@@ -0,0 +1,101 @@
+package opt01;
+
+import com.google.ortools.linearsolver.*;
+
+/**
+ * Hands a whole {@link LinearProgram} to an MPSolver in one call. The model is assembled on the
+ * Java side as an MPModelProto and loaded with loadModelFromProto, instead of one JNI call per
+ * variable and per coefficient. Variable names are only generated when asked for.
+ */
+public class BulkModelBuilder {
+
+	private final MPSolver solver;
+	private final LinearProgram lp;
+	private final boolean nameVariables;
+
+	MPVariable[] x;
+	MPConstraint[] rows;
+
+	public BulkModelBuilder(MPSolver solver, LinearProgram lp, boolean nameVariables) {
+		this.solver = solver;
+		this.lp = lp;
+		this.nameVariables = nameVariables;
+	}
+
+	public MPModelProto toProto() {
+
+		MPModelProto.Builder model = MPModelProto.newBuilder().setMaximize(lp.maximize);
+
+		String[] names = nameVariables ? variableNames() : null;
+		for (int j = 0; j < lp.numVariables; j++) {
+			MPVariableProto.Builder variable = MPVariableProto.newBuilder()
+					.setLowerBound(lp.lower[j])
+					.setUpperBound(lp.upper[j])
+					.setObjectiveCoefficient(lp.objective[j]);
+			if (names != null) {
+				variable.setName(names[j]);
+			}
+			model.addVariable(variable);
+		}
+
+		// the program is stored by column, the proto wants each constraint's terms together
+		lp.indexRows();
+
+		for (int i = 0; i < lp.numConstraints; i++) {
+			MPConstraintProto.Builder constraint = MPConstraintProto.newBuilder()
+					.setLowerBound(lp.rowLower[i])
+					.setUpperBound(lp.rowUpper[i]);
+			if (lp.rowName[i] != null) {
+				constraint.setName(lp.rowName[i]);
+			}
+			for (int k = lp.rowStart[i]; k < lp.rowStart[i + 1]; k++) {
+				constraint.addVarIndex(lp.rowColumn[k]);
+				constraint.addCoefficient(lp.value[lp.rowEntry[k]]);
+			}
+			model.addConstraint(constraint);
+		}
+
+		return model.build();
+	}
+
+	/**
+	 * Loads the model into the solver and fetches the variable and constraint handles with one
+	 * call each.
+	 */
+	public void load() {
+
+		String error = solver.loadModelFromProto(toProto());
+		if (error != null && !error.isEmpty()) {
+			throw new IllegalStateException("Unable to load model: " + error);
+		}
+
+		x = solver.variables();
+		rows = solver.constraints();
+	}
+
+	public MPVariable[] getVariables() {
+		return x;
+	}
+
+	public MPConstraint[] getConstraints() {
+		return rows;
+	}
+
+	private String[] variableNames() {
+
+		String[] names = new String[lp.numVariables];
+		EligiblePairs pairs = lp.pairs;
+		if (pairs != null) {
+			for (int r = 0; r < pairs.rows; r++) {
+				for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+					names[k] = "x[" + r + "][" + pairs.column[k] + "]";
+				}
+			}
+		} else {
+			for (int j = 0; j < lp.numVariables; j++) {
+				names[j] = "x[" + j + "]";
+			}
+		}
+		return names;
+	}
+}
@@ -0,0 +1,302 @@
+package opt01;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Portfolios in the {@link PortfolioRecords} line format, read from a memory-mapped file. Numbers
+ * are parsed straight from the mapped bytes and only names become strings; consecutive rate rows
+ * of the same account reuse its id without decoding the name again. Files larger than a mapping
+ * window are read window by window, each one starting at the first line the previous left unfinished.
+ */
+public class CsvPortfolioSource implements PortfolioSource {
+
+	static final int WINDOW = 1 << 30;
+	static final int MAX_FAST_DIGITS = 15;
+	static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int e = 1; e < POWERS_OF_TEN.length; e++) {
+			POWERS_OF_TEN[e] = POWERS_OF_TEN[e - 1] * 10;
+		}
+	}
+
+	private final int window;
+
+	public CsvPortfolioSource() {
+		this(WINDOW);
+	}
+
+	/**
+	 * Maps the file window bytes at a time; no line may be longer than that.
+	 */
+	CsvPortfolioSource(int window) {
+		this.window = window;
+	}
+
+	@Override
+	public Portfolio load(Path path) throws IOException {
+
+		Parser parser = new Parser();
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long length = Math.min(window, size - position);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int consumed = parser.parse(buffer, position + length == size);
+				if (consumed == 0) {
+					throw new IOException(path + ": line " + (parser.lineNumber + 1) + " is longer than " + window + " bytes");
+				}
+				position += consumed;
+			}
+		} finally {
+			channel.close();
+		}
+		return PortfolioRecords.assemble(parser.limits, parser.needs, parser.investments, null);
+	}
+
+	/**
+	 * Writes a portfolio as L, I and N records that read back to the same books.
+	 */
+	public static void write(Portfolio portfolio, Path path) throws IOException {
+
+		InvestmentBook investments = portfolio.investments;
+		NeedBook needs = portfolio.needs;
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (InvestmentLimits limit : portfolio.limits.values()) {
+				out.write("L," + limit.name + "," + limit.minInvestment + "," + limit.maxInvestment + "\n");
+			}
+			for (int r = 0; r < investments.size; r++) {
+				out.write("I," + investments.getAccountName(r) + "," + investments.term[r] + "," + investments.rate[r] + "\n");
+			}
+			for (int c = 0; c < needs.size; c++) {
+				out.write("N," + needs.name[c] + "," + needs.amount[c] + "," + needs.daysUntilDue[c] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * The books being filled while the windows of one file go by.
+	 */
+	private static class Parser {
+
+		final HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+		final InvestmentBook investments = new InvestmentBook();
+		final NeedBook needs = new NeedBook();
+		final int[] fieldStart = new int[4];
+		final int[] fieldEnd = new int[4];
+		byte[] scratch = new byte[64];
+		byte[] lastAccount = new byte[64];
+		int lastAccountLength = -1;
+		int lastAccountId;
+		int lineNumber;
+
+		/**
+		 * Reads every complete line of the window, or every line when it is the last one, and
+		 * returns how many bytes that took.
+		 */
+		int parse(MappedByteBuffer buffer, boolean last) {
+
+			int limit = buffer.limit();
+			int start = 0;
+			while (start < limit) {
+				int end = start;
+				while (end < limit && buffer.get(end) != '\n') {
+					end++;
+				}
+				if (end == limit && !last) {
+					break;
+				}
+				lineNumber++;
+				record(buffer, start, end);
+				start = end + 1;
+			}
+			return Math.min(start, limit);
+		}
+
+		private void record(MappedByteBuffer buffer, int from, int to) {
+
+			from = skipBlanks(buffer, from, to);
+			to = trimBlanks(buffer, from, to);
+			if (from == to || buffer.get(from) == '#') {
+				return;
+			}
+
+			int count = 0;
+			int start = from;
+			for (int i = from; i < to && count < 3; i++) {
+				if (buffer.get(i) == PortfolioRecords.SEPARATOR) {
+					fieldStart[count] = start;
+					fieldEnd[count++] = i;
+					start = i + 1;
+				}
+			}
+			if (count < 3) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": expected 4 fields in '"
+						+ string(buffer, from, to) + "'");
+			}
+			fieldStart[3] = start;
+			fieldEnd[3] = to;
+			for (int f = 0; f < 4; f++) {
+				fieldStart[f] = skipBlanks(buffer, fieldStart[f], fieldEnd[f]);
+				fieldEnd[f] = trimBlanks(buffer, fieldStart[f], fieldEnd[f]);
+			}
+
+			byte type = fieldEnd[0] - fieldStart[0] == 1 ? buffer.get(fieldStart[0]) : 0;
+			try {
+				switch (type) {
+				case 'L':
+					String account = string(buffer, fieldStart[1], fieldEnd[1]);
+					limits.put(account, new InvestmentLimits(account, number(buffer, 2), number(buffer, 3)));
+					break;
+				case 'I':
+					investments.add(accountId(buffer), number(buffer, 3), (long) number(buffer, 2));
+					break;
+				case 'N':
+					needs.add(string(buffer, fieldStart[1], fieldEnd[1]), number(buffer, 2), (long) number(buffer, 3));
+					break;
+				default:
+					throw new IllegalArgumentException("Line " + lineNumber + ": unknown record type "
+							+ string(buffer, fieldStart[0], fieldEnd[0]));
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+
+		private int accountId(MappedByteBuffer buffer) {
+
+			int from = fieldStart[1];
+			int length = fieldEnd[1] - from;
+			if (length == lastAccountLength) {
+				int i = 0;
+				while (i < length && buffer.get(from + i) == lastAccount[i]) {
+					i++;
+				}
+				if (i == length) {
+					return lastAccountId;
+				}
+			}
+			if (length > lastAccount.length) {
+				lastAccount = new byte[Math.max(length, 2 * lastAccount.length)];
+			}
+			for (int i = 0; i < length; i++) {
+				lastAccount[i] = buffer.get(from + i);
+			}
+			lastAccountLength = length;
+			lastAccountId = investments.accountIdOf(new String(lastAccount, 0, length, StandardCharsets.UTF_8));
+			return lastAccountId;
+		}
+
+		/**
+		 * Plain decimals of up to 15 significant digits and a power of ten within 22 are exact
+		 * doubles scaled by one exact power, so one multiplication or division rounds them the way
+		 * {@link Double#parseDouble(String)} does. Anything else goes to Double.parseDouble.
+		 */
+		private double number(MappedByteBuffer buffer, int field) {
+
+			int from = fieldStart[field];
+			int to = fieldEnd[field];
+			int i = from;
+			boolean negative = false;
+			if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+				negative = buffer.get(i++) == '-';
+			}
+
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean seen = false;
+			byte b;
+			while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits += mantissa != 0 ? 1 : 0;
+				seen = true;
+				i++;
+				if (digits > MAX_FAST_DIGITS) {
+					return Double.parseDouble(string(buffer, from, to));
+				}
+			}
+			if (i < to && buffer.get(i) == '.') {
+				i++;
+				while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+					mantissa = mantissa * 10 + (b - '0');
+					digits += mantissa != 0 ? 1 : 0;
+					exponent--;
+					seen = true;
+					i++;
+					if (digits > MAX_FAST_DIGITS) {
+						return Double.parseDouble(string(buffer, from, to));
+					}
+				}
+			}
+			if (seen && i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+				i++;
+				boolean negativeExponent = false;
+				if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+					negativeExponent = buffer.get(i++) == '-';
+				}
+				int power = 0;
+				int start = i;
+				while (i < to && (b = buffer.get(i)) >= '0' && b <= '9' && power < 1000) {
+					power = power * 10 + (b - '0');
+					i++;
+				}
+				if (i == start) {
+					seen = false;
+				}
+				exponent += negativeExponent ? -power : power;
+			}
+			if (!seen || i != to || exponent < -22 || exponent > 22) {
+				return Double.parseDouble(string(buffer, from, to));
+			}
+
+			double value = mantissa;
+			if (exponent > 0) {
+				value *= POWERS_OF_TEN[exponent];
+			} else if (exponent < 0) {
+				value /= POWERS_OF_TEN[-exponent];
+			}
+			return negative ? -value : value;
+		}
+
+		private String string(MappedByteBuffer buffer, int from, int to) {
+
+			int length = to - from;
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, 2 * scratch.length)];
+			}
+			for (int i = 0; i < length; i++) {
+				scratch[i] = buffer.get(from + i);
+			}
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Same blanks as {@link String#trim()}.
+		 */
+		private static int skipBlanks(MappedByteBuffer buffer, int from, int to) {
+			while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+				from++;
+			}
+			return from;
+		}
+
+		private static int trimBlanks(MappedByteBuffer buffer, int from, int to) {
+			while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+				to--;
+			}
+			return to;
+		}
+	}
+}
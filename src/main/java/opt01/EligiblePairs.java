@@ -0,0 +1,127 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * The (investment, need) cells where the investment term fits before the need is due,
+ * stored row by row in compressed sparse row form together with their gain.
+ */
+public class EligiblePairs {
+
+	int rows;
+	int columns;
+	int[] rowStart;
+	int[] column;
+	double[] gain;
+
+	// column view, filled by indexColumns()
+	int[] row;
+	int[] columnStart;
+	int[] columnPair;
+
+	public static EligiblePairs build(InvestmentBook investments, NeedBook needs) {
+		return build(investments, needs, null);
+	}
+
+	/**
+	 * With the gains filled by the given engine, or by {@link GainsEngine#forPairs(int)} when null.
+	 */
+	static EligiblePairs build(InvestmentBook investments, NeedBook needs, GainsEngine engine) {
+
+		EligiblePairs pairs = new EligiblePairs();
+		pairs.rows = investments.size;
+		pairs.columns = needs.size;
+
+		// Needs sorted by due date: the eligible needs of a row are a suffix of this order
+		Integer[] order = new Integer[needs.size];
+		for (int c = 0; c < needs.size; c++) {
+			order[c] = c;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(needs.daysUntilDue[a], needs.daysUntilDue[b]));
+
+		int[] sortedColumn = new int[needs.size];
+		long[] sortedDays = new long[needs.size];
+		double[] sortedAmount = new double[needs.size];
+		for (int i = 0; i < needs.size; i++) {
+			sortedColumn[i] = order[i];
+			sortedDays[i] = needs.daysUntilDue[order[i]];
+			sortedAmount[i] = needs.amount[order[i]];
+		}
+
+		int[] firstEligible = new int[investments.size];
+		pairs.rowStart = new int[investments.size + 1];
+		for (int r = 0; r < investments.size; r++) {
+			firstEligible[r] = lowerBound(sortedDays, investments.term[r]);
+			pairs.rowStart[r + 1] = pairs.rowStart[r] + needs.size - firstEligible[r];
+		}
+
+		int nonZeros = pairs.rowStart[investments.size];
+		pairs.column = new int[nonZeros];
+		pairs.gain = new double[nonZeros];
+
+		if (engine == null) {
+			engine = GainsEngine.forPairs(nonZeros);
+		}
+		engine.fill(pairs, investments, sortedColumn, sortedAmount, firstEligible);
+
+		return pairs;
+	}
+
+	public int nonZeros() {
+		return rowStart[rows];
+	}
+
+	/**
+	 * Builds the transposed view: the pairs of need c are columnPair[columnStart[c]..columnStart[c + 1]).
+	 */
+	public void indexColumns() {
+
+		if (columnStart != null) {
+			return;
+		}
+
+		int nonZeros = nonZeros();
+		row = new int[nonZeros];
+		columnStart = new int[columns + 1];
+		columnPair = new int[nonZeros];
+
+		for (int r = 0; r < rows; r++) {
+			for (int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+				row[k] = r;
+				columnStart[column[k] + 1]++;
+			}
+		}
+		for (int c = 0; c < columns; c++) {
+			columnStart[c + 1] += columnStart[c];
+		}
+
+		int[] next = Arrays.copyOf(columnStart, columns);
+		for (int k = 0; k < nonZeros; k++) {
+			columnPair[next[column[k]]++] = k;
+		}
+	}
+
+	public int find(int row, int col) {
+		for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+			if (column[k] == col) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	private static int lowerBound(long[] sorted, long key) {
+
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sorted[middle] < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,115 @@
+package opt01;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills the gains of the {@link EligiblePairs}, splitting rows across a ForkJoin pool once the
+ * pairs are many enough to pay for it. The eligible needs of a row are a contiguous run of the
+ * needs sorted by due date, so each row runs a branch-free kernel over that run which the JIT
+ * can vectorize.
+ */
+public class GainsEngine {
+
+	static final String THREADS_PROPERTY = "opt01.gains.threads";
+	static final int PARALLEL_PAIRS = Integer.getInteger("opt01.gains.parallelPairs", 1 << 18);
+	static final int DAYS_IN_YEAR = OptimizeInvestments.DAYS_IN_YEAR;
+
+	private final int parallelism;
+
+	public GainsEngine(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public static int defaultParallelism() {
+		return Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * The engine for this many pairs: single threaded below {@link #PARALLEL_PAIRS}.
+	 */
+	static GainsEngine forPairs(int nonZeros) {
+		return new GainsEngine(nonZeros < PARALLEL_PAIRS ? 1 : defaultParallelism());
+	}
+
+	/**
+	 * Writes the column and gain of every pair. Row r takes the sorted needs from firstEligible[r]
+	 * on; order maps them back to need columns and sortedAmount holds their amounts.
+	 */
+	void fill(EligiblePairs pairs, InvestmentBook investments, int[] order, double[] sortedAmount,
+			int[] firstEligible) {
+
+		if (parallelism == 1 || pairs.rows < 2) {
+			new RowTask(pairs, investments, order, sortedAmount, firstEligible, 0, pairs.rows, pairs.rows).compute();
+			return;
+		}
+
+		int rowsPerTask = Math.max(1, pairs.rows / (parallelism * 4));
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new RowTask(pairs, investments, order, sortedAmount, firstEligible, 0, pairs.rows,
+					rowsPerTask));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * One year of simple interest on each amount of sortedAmount[from, to), written from gain[k] on.
+	 */
+	static void fillRow(double[] gain, int k, double rate, double[] sortedAmount, int from, int to) {
+
+		double dailyRate = rate / DAYS_IN_YEAR;
+		for (int i = from; i < to; i++, k++) {
+			gain[k] = gainInOneYear(sortedAmount[i], dailyRate);
+		}
+	}
+
+	static double gainInOneYear(double currentAmount, double investmentDailyRate) {
+		return currentAmount + currentAmount * investmentDailyRate * DAYS_IN_YEAR;
+	}
+
+	private static class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final EligiblePairs pairs;
+		private final InvestmentBook investments;
+		private final int[] order;
+		private final double[] sortedAmount;
+		private final int[] firstEligible;
+		private final int from;
+		private final int to;
+		private final int rowsPerTask;
+
+		RowTask(EligiblePairs pairs, InvestmentBook investments, int[] order, double[] sortedAmount,
+				int[] firstEligible, int from, int to, int rowsPerTask) {
+			this.pairs = pairs;
+			this.investments = investments;
+			this.order = order;
+			this.sortedAmount = sortedAmount;
+			this.firstEligible = firstEligible;
+			this.from = from;
+			this.to = to;
+			this.rowsPerTask = rowsPerTask;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (to - from > rowsPerTask) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(pairs, investments, order, sortedAmount, firstEligible, from, middle, rowsPerTask),
+						new RowTask(pairs, investments, order, sortedAmount, firstEligible, middle, to, rowsPerTask));
+				return;
+			}
+
+			int needs = order.length;
+			for (int r = from; r < to; r++) {
+				int k = pairs.rowStart[r];
+				System.arraycopy(order, firstEligible[r], pairs.column, k, needs - firstEligible[r]);
+				fillRow(pairs.gain, k, investments.rate[r], sortedAmount, firstEligible[r], needs);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package opt01;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link MetricsRegistry}: counters and count/sum/min/max histograms kept in memory,
+ * safe to share between threads.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+
+	private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	@Override
+	public void increment(String counter, long delta) {
+		counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+	}
+
+	@Override
+	public void record(String histogram, long value) {
+		histograms.computeIfAbsent(histogram, k -> new Histogram()).record(value);
+	}
+
+	public long getCounter(String counter) {
+		LongAdder adder = counters.get(counter);
+		return adder != null ? adder.sum() : 0;
+	}
+
+	public Histogram getHistogram(String histogram) {
+		return histograms.get(histogram);
+	}
+
+	public Map<String, Long> counters() {
+
+		TreeMap<String, Long> snapshot = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().sum());
+		}
+		return snapshot;
+	}
+
+	public Map<String, Histogram> histograms() {
+		return new TreeMap<String, Histogram>(histograms);
+	}
+
+	public static class Histogram {
+
+		private long count;
+		private long sum;
+		private long min = Long.MAX_VALUE;
+		private long max = Long.MIN_VALUE;
+
+		synchronized void record(long value) {
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getSum() {
+			return sum;
+		}
+
+		public synchronized long getMin() {
+			return count > 0 ? min : 0;
+		}
+
+		public synchronized long getMax() {
+			return count > 0 ? max : 0;
+		}
+
+		public synchronized double getMean() {
+			return count > 0 ? (double) sum / count : 0;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return "Histogram: [count=" + count + ", mean=" + getMean() + ", min=" + getMin() + ", max=" + getMax() + "]";
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package opt01;
+
+import java.util.Arrays;
+
+import com.google.ortools.linearsolver.*;
+
+/**
+ * Keeps the solver, its variables and constraints alive between runs. Rate, need amount and
+ * limit changes only patch the coefficients and bounds they touch, and the next solve starts
+ * from the previous basis when the backend supports it (GLOP does, CBC rebuilds). The model keeps
+ * its own copy of the rates, need amounts and account limits, so updates never reach the portfolio
+ * it was built from.
+ */
+public class IncrementalModel {
+
+	static {
+		System.loadLibrary("jniortools");
+	}
+
+	static final String DEFAULT_SOLVER = "GLOP";
+
+	private final MPSolver solver;
+	private final InvestmentBook investments;
+	private final NeedBook needs;
+	private final EligiblePairs pairs;
+	private final SparseModelBuilder model;
+	private final MPSolverParameters parameters = new MPSolverParameters();
+	private MPSolver.ResultStatus resultStatus = MPSolver.ResultStatus.NOT_SOLVED;
+
+	public IncrementalModel(MPSolver solver, Portfolio portfolio, boolean nameVariables) {
+
+		InvestmentBook book = portfolio.investments;
+		this.solver = solver;
+		this.investments = InvestmentBook.wrap(book.size, book.accountId, Arrays.copyOf(book.rate, book.size),
+				book.term, book.accountCount, book.accountName, Arrays.copyOf(book.accountMin, book.accountCount),
+				Arrays.copyOf(book.accountMax, book.accountCount));
+		this.needs = NeedBook.wrap(portfolio.needs.size, portfolio.needs.name,
+				Arrays.copyOf(portfolio.needs.amount, portfolio.needs.size), portfolio.needs.daysUntilDue);
+		this.pairs = EligiblePairs.build(investments, needs);
+		this.pairs.indexColumns();
+
+		model = new SparseModelBuilder(solver, pairs, investments, needs, nameVariables);
+		model.initializeVariables();
+		model.limitsPerInvestmentOption();
+		model.limitPerNeed();
+		model.setupObjective();
+
+		parameters.setIntegerParam(MPSolverParameters.IntegerParam.INCREMENTALITY,
+				MPSolverParameters.IncrementalityValues.INCREMENTALITY_ON.swigValue());
+	}
+
+	public static IncrementalModel create(Portfolio portfolio) {
+		return create(portfolio, DEFAULT_SOLVER);
+	}
+
+	public static IncrementalModel create(Portfolio portfolio, String solverId) {
+
+		MPSolver solver = MPSolver.createSolver("IncrementalAssignment", solverId);
+		if (solver == null) {
+			throw new IllegalStateException("OR-Tools solver " + solverId + " is not available");
+		}
+		return new IncrementalModel(solver, portfolio, false);
+	}
+
+	public MPSolver.ResultStatus solve() {
+		resultStatus = solver.solve(parameters);
+		return resultStatus;
+	}
+
+	public void updateRate(int row, double interestRate) {
+
+		investments.rate[row] = interestRate;
+
+		double dailyRate = interestRate / GainsEngine.DAYS_IN_YEAR;
+		MPConstraint accountConstraint = model.accountConstraints[investments.accountId[row]];
+
+		for (int k = pairs.rowStart[row]; k < pairs.rowStart[row + 1]; k++) {
+			double gain = GainsEngine.gainInOneYear(needs.amount[pairs.column[k]], dailyRate);
+			setGain(k, gain, accountConstraint);
+		}
+	}
+
+	public int updateRate(String accountName, long term, double interestRate) {
+
+		int account = investments.findAccount(accountName);
+		if (account < 0) {
+			throw new IllegalArgumentException("Unknown account " + accountName);
+		}
+		int updated = 0;
+		for (int r = 0; r < investments.size; r++) {
+			if (investments.accountId[r] == account && investments.term[r] == term) {
+				updateRate(r, interestRate);
+				updated++;
+			}
+		}
+		return updated;
+	}
+
+	public void updateNeedAmount(int column, double amount) {
+
+		needs.amount[column] = amount;
+
+		MPConstraint needConstraint = model.needConstraints[column];
+		needConstraint.setBounds(amount, amount);
+
+		for (int i = pairs.columnStart[column]; i < pairs.columnStart[column + 1]; i++) {
+			int k = pairs.columnPair[i];
+			int r = pairs.row[k];
+			double gain = GainsEngine.gainInOneYear(amount, investments.rate[r] / GainsEngine.DAYS_IN_YEAR);
+			setGain(k, gain, model.accountConstraints[investments.accountId[r]]);
+			needConstraint.setCoefficient(model.x[k], amount);
+		}
+	}
+
+	public void updateLimit(int account, double min, double max) {
+		investments.setAccountLimits(account, min, max);
+		model.accountConstraints[account].setBounds(min, max);
+	}
+
+	public void updateLimit(String accountName, double min, double max) {
+
+		int account = investments.findAccount(accountName);
+		if (account < 0) {
+			throw new IllegalArgumentException("Unknown account " + accountName);
+		}
+		updateLimit(account, min, max);
+	}
+
+	public MPSolver.ResultStatus getResultStatus() {
+		return resultStatus;
+	}
+
+	public double getObjectiveValue() {
+		return model.objective.value();
+	}
+
+	public double solutionValue(int pair) {
+		return model.x[pair].solutionValue();
+	}
+
+	/**
+	 * Shadow price of the account limit after the last solve.
+	 */
+	public double accountDual(int account) {
+		return model.accountConstraints[account].dualValue();
+	}
+
+	public double needDual(int column) {
+		return model.needConstraints[column].dualValue();
+	}
+
+	public double reducedCost(int pair) {
+		return model.x[pair].reducedCost();
+	}
+
+	public EligiblePairs getPairs() {
+		return pairs;
+	}
+
+	public MPSolver getSolver() {
+		return solver;
+	}
+
+	private void setGain(int k, double gain, MPConstraint accountConstraint) {
+		pairs.gain[k] = gain;
+		model.objective.setCoefficient(model.x[k], gain);
+		accountConstraint.setCoefficient(model.x[k], gain);
+	}
+}
@@ -102,7 +102,10 @@ public class Investment implements Comparable<Object>{
 	}
 
     public Investment clone(){
-        return new Investment(this.accountName, this.interestRate, this.term, this.minInvestmentAmount, this.maxInvestmentAmount);
+        Investment copy = new Investment(this.accountName, this.interestRate, this.term, this.minInvestmentAmount, this.maxInvestmentAmount);
+        copy.currentInvestmentAmount = this.currentInvestmentAmount;
+        copy.active = this.active;
+        return copy;
     }    
 
 }
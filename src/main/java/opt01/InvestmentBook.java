@@ -0,0 +1,139 @@
+package opt01;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Investment catalogue stored as parallel primitive arrays, one slot per row of the
+ * Investments sheet. Account names are interned to an accountId so the per-account
+ * limits live in their own small arrays.
+ */
+public class InvestmentBook {
+
+	static final int INITIAL_CAPACITY = 16;
+
+	int size;
+	int[] accountId = new int[INITIAL_CAPACITY];
+	double[] rate = new double[INITIAL_CAPACITY];
+	long[] term = new long[INITIAL_CAPACITY];
+
+	int accountCount;
+	String[] accountName = new String[INITIAL_CAPACITY];
+	double[] accountMin = new double[INITIAL_CAPACITY];
+	double[] accountMax = new double[INITIAL_CAPACITY];
+	private HashMap<String, Integer> accountIds = new HashMap<String, Integer>();
+
+	/**
+	 * Wraps already filled columns, as read back from a snapshot, without copying them.
+	 */
+	static InvestmentBook wrap(int size, int[] accountId, double[] rate, long[] term, int accountCount,
+			String[] accountName, double[] accountMin, double[] accountMax) {
+
+		InvestmentBook book = new InvestmentBook();
+		book.size = size;
+		book.accountId = accountId;
+		book.rate = rate;
+		book.term = term;
+		book.accountCount = accountCount;
+		book.accountName = accountName;
+		book.accountMin = accountMin;
+		book.accountMax = accountMax;
+		for (int account = 0; account < accountCount; account++) {
+			book.accountIds.put(accountName[account], account);
+		}
+		return book;
+	}
+
+	public int add(String accountName, double interestRate, long term) {
+		return add(accountIdOf(accountName), interestRate, term);
+	}
+
+	/**
+	 * Adds a product to an account already interned by {@link #accountIdOf(String)}.
+	 */
+	public int add(int account, double interestRate, long term) {
+
+		if (size == rate.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+			this.accountId = Arrays.copyOf(this.accountId, capacity);
+			this.rate = Arrays.copyOf(this.rate, capacity);
+			this.term = Arrays.copyOf(this.term, capacity);
+		}
+
+		this.accountId[size] = account;
+		this.rate[size] = interestRate;
+		this.term[size] = term;
+		return size++;
+	}
+
+	public int accountIdOf(String name) {
+
+		Integer id = accountIds.get(name);
+		if (id != null) {
+			return id;
+		}
+
+		if (accountCount == accountName.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, accountCount * 2);
+			accountName = Arrays.copyOf(accountName, capacity);
+			accountMin = Arrays.copyOf(accountMin, capacity);
+			accountMax = Arrays.copyOf(accountMax, capacity);
+		}
+
+		accountName[accountCount] = name;
+		accountIds.put(name, accountCount);
+		return accountCount++;
+	}
+
+	public int findAccount(String name) {
+		Integer id = accountIds.get(name);
+		return id != null ? id : -1;
+	}
+
+	public void setAccountLimits(int account, double min, double max) {
+		accountMin[account] = min;
+		accountMax[account] = max;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int accountCount() {
+		return accountCount;
+	}
+
+	public String getAccountName(int row) {
+		return accountName[accountId[row]];
+	}
+
+	public double getInterestRate(int row) {
+		return rate[row];
+	}
+
+	public long getTerm(int row) {
+		return term[row];
+	}
+
+	public double getMinInvestmentAmount(int row) {
+		return accountMin[accountId[row]];
+	}
+
+	public double getMaxInvestmentAmount(int row) {
+		return accountMax[accountId[row]];
+	}
+
+	public Investment get(int row) {
+		return new Investment(getAccountName(row), rate[row], term[row],
+				getMinInvestmentAmount(row), getMaxInvestmentAmount(row));
+	}
+
+	public Investment[] toArray() {
+
+		Investment[] investments = new Investment[size];
+		for (int r = 0; r < size; r++) {
+			investments[r] = get(r);
+		}
+		return investments;
+	}
+}
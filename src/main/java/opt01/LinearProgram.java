@@ -0,0 +1,182 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Solver independent linear program: bounded variables, ranged constraints and the
+ * constraint matrix stored column by column (compressed sparse column form).
+ */
+public class LinearProgram {
+
+	int numVariables;
+	double[] lower;
+	double[] upper;
+	double[] objective;
+	boolean maximize;
+
+	int numConstraints;
+	double[] rowLower;
+	double[] rowUpper;
+	String[] rowName;
+
+	int[] columnStart;
+	int[] rowIndex;
+	double[] value;
+
+	// row by row view of the same matrix, filled by indexRows(); rowEntry points into value,
+	// so the view stays current when coefficients change and copies can share it
+	int[] rowStart;
+	int[] rowColumn;
+	int[] rowEntry;
+
+	// set by forAllocation(), so specialized solvers can recognize the assignment structure
+	InvestmentBook investments;
+	NeedBook needs;
+	EligiblePairs pairs;
+	int[] accountRow;
+	int accountRows;
+
+	/**
+	 * Same model as {@link SparseModelBuilder}: one [0, 1] variable per eligible pair, one limit
+	 * row per account in order of first appearance, then one funding row per need.
+	 */
+	public static LinearProgram forAllocation(InvestmentBook investments, NeedBook needs, EligiblePairs pairs) {
+
+		int[] accountRow = new int[investments.accountCount];
+		Arrays.fill(accountRow, -1);
+		int accountRows = 0;
+		for (int r = 0; r < investments.size; r++) {
+			if (accountRow[investments.accountId[r]] < 0) {
+				accountRow[investments.accountId[r]] = accountRows++;
+			}
+		}
+
+		LinearProgram lp = new LinearProgram();
+		lp.investments = investments;
+		lp.needs = needs;
+		lp.pairs = pairs;
+		lp.accountRow = accountRow;
+		lp.accountRows = accountRows;
+		lp.numConstraints = accountRows + needs.size;
+		lp.rowLower = new double[lp.numConstraints];
+		lp.rowUpper = new double[lp.numConstraints];
+		lp.rowName = new String[lp.numConstraints];
+
+		for (int account = 0; account < investments.accountCount; account++) {
+			int row = accountRow[account];
+			if (row >= 0) {
+				lp.rowLower[row] = investments.accountMin[account];
+				lp.rowUpper[row] = investments.accountMax[account];
+				lp.rowName[row] = investments.accountName[account];
+			}
+		}
+		for (int c = 0; c < needs.size; c++) {
+			lp.rowLower[accountRows + c] = needs.amount[c];
+			lp.rowUpper[accountRows + c] = needs.amount[c];
+			lp.rowName[accountRows + c] = needs.name[c];
+		}
+
+		int nonZeros = pairs.nonZeros();
+		lp.numVariables = nonZeros;
+		lp.lower = new double[nonZeros];
+		lp.upper = new double[nonZeros];
+		lp.objective = new double[nonZeros];
+		lp.maximize = true;
+
+		lp.columnStart = new int[nonZeros + 1];
+		lp.rowIndex = new int[2 * nonZeros];
+		lp.value = new double[2 * nonZeros];
+
+		for (int r = 0; r < pairs.rows; r++) {
+			int row = accountRow[investments.accountId[r]];
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				int c = pairs.column[k];
+				lp.upper[k] = 1.0;
+				lp.objective[k] = pairs.gain[k];
+
+				lp.columnStart[k + 1] = 2 * (k + 1);
+				lp.rowIndex[2 * k] = row;
+				lp.value[2 * k] = pairs.gain[k];
+				lp.rowIndex[2 * k + 1] = accountRows + c;
+				lp.value[2 * k + 1] = needs.amount[c];
+			}
+		}
+
+		return lp;
+	}
+
+	/**
+	 * Copy whose bounds, objective and coefficients can be changed without touching this program.
+	 * The sparsity pattern and the allocation structure are shared.
+	 */
+	public LinearProgram copy() {
+
+		LinearProgram copy = new LinearProgram();
+		copy.numVariables = numVariables;
+		copy.lower = lower.clone();
+		copy.upper = upper.clone();
+		copy.objective = objective.clone();
+		copy.maximize = maximize;
+		copy.numConstraints = numConstraints;
+		copy.rowLower = rowLower.clone();
+		copy.rowUpper = rowUpper.clone();
+		copy.rowName = rowName;
+		copy.columnStart = columnStart;
+		copy.rowIndex = rowIndex;
+		copy.value = value.clone();
+		copy.rowStart = rowStart;
+		copy.rowColumn = rowColumn;
+		copy.rowEntry = rowEntry;
+		copy.investments = investments;
+		copy.needs = needs;
+		copy.pairs = pairs;
+		copy.accountRow = accountRow;
+		copy.accountRows = accountRows;
+		return copy;
+	}
+
+	/**
+	 * Builds the transposed view: the terms of constraint i are
+	 * (rowColumn[k], value[rowEntry[k]]) for k in [rowStart[i], rowStart[i + 1]).
+	 * It depends only on the sparsity pattern and is built once.
+	 */
+	public void indexRows() {
+
+		if (rowStart != null) {
+			return;
+		}
+
+		int nonZeros = nonZeros();
+		rowStart = new int[numConstraints + 1];
+		rowColumn = new int[nonZeros];
+		rowEntry = new int[nonZeros];
+
+		for (int k = 0; k < nonZeros; k++) {
+			rowStart[rowIndex[k] + 1]++;
+		}
+		for (int i = 0; i < numConstraints; i++) {
+			rowStart[i + 1] += rowStart[i];
+		}
+
+		int[] next = Arrays.copyOf(rowStart, numConstraints);
+		for (int j = 0; j < numVariables; j++) {
+			for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+				int slot = next[rowIndex[k]]++;
+				rowColumn[slot] = j;
+				rowEntry[slot] = k;
+			}
+		}
+	}
+
+	public int getNumVariables() {
+		return numVariables;
+	}
+
+	public int getNumConstraints() {
+		return numConstraints;
+	}
+
+	public int nonZeros() {
+		return columnStart[numVariables];
+	}
+}
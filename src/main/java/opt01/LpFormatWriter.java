@@ -0,0 +1,152 @@
+package opt01;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams a {@link LinearProgram} in CPLEX LP format, one constraint at a time, so exporting a
+ * large model never holds it in memory as a single String the way exportModelAsLpFormat does.
+ * Ranged constraints are written as a _lhs / _rhs pair, as OR-Tools does.
+ */
+public class LpFormatWriter {
+
+	static final int TERMS_PER_LINE = 8;
+
+	private final LinearProgram lp;
+	private final String[] variableNames;
+
+	public LpFormatWriter(LinearProgram lp) {
+		this.lp = lp;
+		this.variableNames = variableNames(lp);
+	}
+
+	public void write(Path path) throws IOException {
+
+		BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public void write(Writer out) throws IOException {
+
+		lp.indexRows();
+
+		out.write(lp.maximize ? "Maximize\n" : "Minimize\n");
+		out.write(" obj:");
+		int terms = 0;
+		for (int j = 0; j < lp.numVariables; j++) {
+			if (lp.objective[j] != 0) {
+				terms = writeTerm(out, lp.objective[j], j, terms);
+			}
+		}
+		if (terms == 0) {
+			out.write(emptyExpression());
+		}
+		out.write("\n");
+
+		out.write("Subject To\n");
+		for (int i = 0; i < lp.numConstraints; i++) {
+			String name = "c" + i + "_" + sanitize(lp.rowName[i]);
+			double lower = lp.rowLower[i];
+			double upper = lp.rowUpper[i];
+			if (lower == upper) {
+				writeRow(out, name, i, " = ", lower);
+			} else {
+				boolean hasLower = lower != Double.NEGATIVE_INFINITY;
+				boolean hasUpper = upper != Double.POSITIVE_INFINITY;
+				if (hasLower && hasUpper) {
+					writeRow(out, name + "_lhs", i, " >= ", lower);
+					writeRow(out, name + "_rhs", i, " <= ", upper);
+				} else if (hasLower) {
+					writeRow(out, name, i, " >= ", lower);
+				} else if (hasUpper) {
+					writeRow(out, name, i, " <= ", upper);
+				}
+			}
+		}
+
+		out.write("Bounds\n");
+		for (int j = 0; j < lp.numVariables; j++) {
+			out.write(" " + bound(lp.lower[j]) + " <= " + variableNames[j] + " <= " + bound(lp.upper[j]) + "\n");
+		}
+
+		out.write("End\n");
+	}
+
+	private void writeRow(Writer out, String name, int row, String sense, double rightHandSide) throws IOException {
+
+		out.write(" " + name + ":");
+		int terms = 0;
+		for (int k = lp.rowStart[row]; k < lp.rowStart[row + 1]; k++) {
+			terms = writeTerm(out, lp.value[lp.rowEntry[k]], lp.rowColumn[k], terms);
+		}
+		if (terms == 0) {
+			out.write(emptyExpression());
+		}
+		out.write(sense + rightHandSide + "\n");
+	}
+
+	private String emptyExpression() {
+		return variableNames.length > 0 ? " 0 " + variableNames[0] : " 0";
+	}
+
+	private int writeTerm(Writer out, double coefficient, int variable, int terms) throws IOException {
+
+		if (terms > 0 && terms % TERMS_PER_LINE == 0) {
+			out.write("\n  ");
+		}
+		out.write(coefficient < 0 ? " - " : " + ");
+		out.write(Double.toString(Math.abs(coefficient)));
+		out.write(' ');
+		out.write(variableNames[variable]);
+		return terms + 1;
+	}
+
+	private static String bound(double value) {
+		if (value == Double.NEGATIVE_INFINITY) {
+			return "-inf";
+		}
+		if (value == Double.POSITIVE_INFINITY) {
+			return "+inf";
+		}
+		return Double.toString(value);
+	}
+
+	static String sanitize(String name) {
+
+		if (name == null) {
+			return "";
+		}
+		StringBuilder clean = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char ch = name.charAt(i);
+			clean.append(Character.isLetterOrDigit(ch) || ch == '_' || ch == '.' ? ch : '_');
+		}
+		return clean.toString();
+	}
+
+	private static String[] variableNames(LinearProgram lp) {
+
+		String[] names = new String[lp.numVariables];
+		EligiblePairs pairs = lp.pairs;
+		if (pairs != null) {
+			for (int r = 0; r < pairs.rows; r++) {
+				for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+					names[k] = "x_" + r + "_" + pairs.column[k];
+				}
+			}
+		} else {
+			for (int j = 0; j < lp.numVariables; j++) {
+				names[j] = "x_" + j;
+			}
+		}
+		return names;
+	}
+}
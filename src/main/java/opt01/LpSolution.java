@@ -0,0 +1,58 @@
+package opt01;
+
+/**
+ * Primal values, row duals and reduced costs of a solved {@link LinearProgram}, with duals and
+ * reduced costs in the sense of the program's own objective. They are null when the backend
+ * does not provide them.
+ */
+public class LpSolution {
+
+	SolveStatus status;
+	double objectiveValue;
+	double[] values;
+	double[] duals;
+	double[] reducedCosts;
+	long iterations;
+	String engine;
+	// set by backends that can start the next solve from it
+	SimplexLpSolver.Basis basis;
+
+	public LpSolution(SolveStatus status, double objectiveValue, double[] values, double[] duals,
+			double[] reducedCosts, long iterations, String engine) {
+		this.status = status;
+		this.objectiveValue = objectiveValue;
+		this.values = values;
+		this.duals = duals;
+		this.reducedCosts = reducedCosts;
+		this.iterations = iterations;
+		this.engine = engine;
+	}
+
+	public SolveStatus getStatus() {
+		return status;
+	}
+
+	public double getObjectiveValue() {
+		return objectiveValue;
+	}
+
+	public double[] getValues() {
+		return values;
+	}
+
+	public double[] getDuals() {
+		return duals;
+	}
+
+	public double[] getReducedCosts() {
+		return reducedCosts;
+	}
+
+	public long getIterations() {
+		return iterations;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+}
@@ -0,0 +1,61 @@
+package opt01;
+
+/**
+ * A backend able to solve a {@link LinearProgram}. Implementations keep no state between
+ * calls, so one instance can be shared by concurrent sessions.
+ */
+public interface LpSolver {
+
+	String JAVA_BACKEND = "JAVA";
+
+	LpSolution solve(LinearProgram lp);
+
+	/**
+	 * Solves a program of the same shape as the one previous came from, starting from its basis
+	 * when the backend can. Backends without warm starts solve from scratch.
+	 */
+	default LpSolution solve(LinearProgram lp, LpSolution previous) {
+		return solve(lp);
+	}
+
+	String name();
+
+	/**
+	 * The limits this backend solves under; results that depend on them must not be shared
+	 * across configurations.
+	 */
+	default SolverConfig config() {
+		return SolverConfig.DEFAULT;
+	}
+
+	/**
+	 * "JAVA" for the in-process simplex, "AUTO" to let {@link BackendSelector} pick an OR-Tools engine,
+	 * "TRANSPORT" or e.g. "TRANSPORT:AUTO" for the flow solver and its fallback, anything else is an
+	 * OR-Tools solver id such as CBC or GLOP. Limits come from {@link SolverConfig#fromProperties()}.
+	 */
+	static LpSolver forName(String backend) {
+		return forName(backend, SolverConfig.fromProperties());
+	}
+
+	/**
+	 * The backend of the configuration, held to its time limit, gap and threads.
+	 */
+	static LpSolver forConfig(SolverConfig config) {
+		return forName(config.backend, config);
+	}
+
+	static LpSolver forName(String backend, SolverConfig config) {
+		if (JAVA_BACKEND.equalsIgnoreCase(backend)) {
+			return new SimplexLpSolver(SimplexLpSolver.DEFAULT_MAX_ITERATIONS, config);
+		}
+		if (BackendSelector.AUTO_BACKEND.equalsIgnoreCase(backend)) {
+			return new BackendSelector(config);
+		}
+		if (backend.toUpperCase().startsWith(TransportationSolver.TRANSPORT_BACKEND)) {
+			int separator = backend.indexOf(':');
+			return new TransportationSolver(
+					forName(separator < 0 ? JAVA_BACKEND : backend.substring(separator + 1), config));
+		}
+		return new OrToolsLpSolver(backend.toUpperCase(), null, config);
+	}
+}
@@ -0,0 +1,12 @@
+package opt01;
+
+/**
+ * Where the run instrumentation reports to. The default keeps everything in memory; an
+ * adapter to any metrics library only has to implement these two calls.
+ */
+public interface MetricsRegistry {
+
+	void increment(String counter, long delta);
+
+	void record(String histogram, long value);
+}
@@ -0,0 +1,226 @@
+package opt01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Outcome distribution of an allocation under rate uncertainty. Every scenario draws one normal
+ * shock per account and moves all of that account's rates by volatility x shock. A shocked rate
+ * may go negative, down to -1 where the money is lost. Scenarios run in fixed-size tasks on a
+ * ForkJoin pool. Each task owns a SplittableRandom split off the seed in task order, so a seed
+ * always gives the same result whatever the thread count.
+ *
+ * A need falls short in a scenario when the value its products deliver under the shocked rates
+ * is less than the need amount, which only happens when rates turn negative. evaluate() keeps
+ * the allocation fixed: it was placed at the planned rates, so a shock changes what it returns,
+ * not how much of it an account limit admits. reoptimize() solves the model again under every
+ * scenario instead, and counts every need short when no allocation is feasible.
+ */
+public class MonteCarloEngine {
+
+	static final String THREADS_PROPERTY = "opt01.montecarlo.threads";
+	static final String VOLATILITY_PROPERTY = "opt01.montecarlo.volatility";
+	static final double DEFAULT_VOLATILITY = 0.01;
+	static final int SCENARIOS_PER_TASK = 1024;
+	static final double FUNDED_TOLERANCE = 1e-6;
+
+	private final InvestmentBook investments;
+	private final NeedBook needs;
+	private final EligiblePairs pairs;
+	private final int parallelism;
+	private final double[] volatility;
+
+	public MonteCarloEngine(Portfolio portfolio, EligiblePairs pairs, int parallelism) {
+
+		this.investments = portfolio.investments;
+		this.needs = portfolio.needs;
+		this.pairs = pairs;
+		this.parallelism = Math.max(1, parallelism);
+		this.volatility = new double[investments.accountCount];
+		Arrays.fill(volatility, Double.parseDouble(System.getProperty(VOLATILITY_PROPERTY, "" + DEFAULT_VOLATILITY)));
+	}
+
+	public MonteCarloEngine(Portfolio portfolio, EligiblePairs pairs) {
+		this(portfolio, pairs, defaultParallelism());
+	}
+
+	public static int defaultParallelism() {
+		return Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Standard deviation of the account's rate shock, in rate units (0.01 is one point).
+	 */
+	public void setVolatility(int account, double accountVolatility) {
+		volatility[account] = accountVolatility;
+	}
+
+	public void setVolatility(String accountName, double accountVolatility) {
+		int account = investments.findAccount(accountName);
+		if (account < 0) {
+			throw new IllegalArgumentException("Unknown account " + accountName);
+		}
+		volatility[account] = accountVolatility;
+	}
+
+	public MonteCarloResult evaluate(double[] allocation, int scenarios, long seed) {
+
+		return run(scenarios, seed, (random, from, to, result) -> {
+			double[] shock = new double[investments.accountCount];
+			double[] gain = new double[pairs.nonZeros()];
+			double[] delivered = new double[needs.size];
+			for (int s = from; s < to; s++) {
+				shockedGains(random, shock, gain);
+				result.gains[s] = deliver(allocation, gain, delivered, result.shortfalls);
+			}
+		});
+	}
+
+	public MonteCarloResult reoptimize(LpSolver solver, int scenarios, long seed) {
+
+		LinearProgram base = LinearProgram.forAllocation(investments, needs, pairs);
+		return run(scenarios, seed, (random, from, to, result) -> {
+			LinearProgram lp = base.copy();
+			double[] shock = new double[investments.accountCount];
+			double[] gain = new double[pairs.nonZeros()];
+			double[] delivered = new double[needs.size];
+			for (int s = from; s < to; s++) {
+				shockedGains(random, shock, gain);
+				for (int k = 0; k < gain.length; k++) {
+					lp.objective[k] = gain[k];
+					lp.value[2 * k] = gain[k];
+				}
+				LpSolution solution = solver.solve(lp);
+				if (solution.status.hasSolution()) {
+					deliver(solution.values, gain, delivered, result.shortfalls);
+					result.gains[s] = solution.objectiveValue;
+				} else {
+					// no allocation funds every need in this scenario
+					result.gains[s] = 0;
+					result.failed++;
+					for (int c = 0; c < needs.size; c++) {
+						result.shortfalls[c]++;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gain of the allocation under one scenario's gains, counting the needs whose products deliver
+	 * less than the need amount.
+	 */
+	private double deliver(double[] allocation, double[] gain, double[] delivered, long[] shortfalls) {
+
+		Arrays.fill(delivered, 0);
+		double total = 0;
+		for (int k = 0; k < gain.length; k++) {
+			double value = allocation[k] * gain[k];
+			total += value;
+			delivered[pairs.column[k]] += value;
+		}
+		for (int c = 0; c < needs.size; c++) {
+			if (delivered[c] < needs.amount[c] * (1.0 - FUNDED_TOLERANCE)) {
+				shortfalls[c]++;
+			}
+		}
+		return total;
+	}
+
+	private void shockedGains(SplittableRandom random, double[] shock, double[] gain) {
+
+		for (int account = 0; account < shock.length; account++) {
+			shock[account] = volatility[account] * nextGaussian(random);
+		}
+
+		for (int r = 0; r < pairs.rows; r++) {
+			double rate = Math.max(-1, investments.rate[r] + shock[investments.accountId[r]]);
+			double dailyRate = rate / GainsEngine.DAYS_IN_YEAR;
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				gain[k] = GainsEngine.gainInOneYear(needs.amount[pairs.column[k]], dailyRate);
+			}
+		}
+	}
+
+	/**
+	 * Marsaglia polar method; SplittableRandom has no nextGaussian before Java 17.
+	 */
+	static double nextGaussian(SplittableRandom random) {
+
+		double u;
+		double v;
+		double s;
+		do {
+			u = 2 * random.nextDouble() - 1;
+			v = 2 * random.nextDouble() - 1;
+			s = u * u + v * v;
+		} while (s >= 1 || s == 0);
+		return u * Math.sqrt(-2 * Math.log(s) / s);
+	}
+
+	private MonteCarloResult run(int scenarios, long seed, ScenarioTask task) {
+
+		int tasks = (scenarios + SCENARIOS_PER_TASK - 1) / SCENARIOS_PER_TASK;
+		double[] gains = new double[scenarios];
+		SplittableRandom root = new SplittableRandom(seed);
+
+		List<Callable<TaskResult>> work = new ArrayList<Callable<TaskResult>>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			SplittableRandom random = root.split();
+			int from = t * SCENARIOS_PER_TASK;
+			int to = Math.min(scenarios, from + SCENARIOS_PER_TASK);
+			work.add(() -> {
+				TaskResult result = new TaskResult(gains, needs.size);
+				task.run(random, from, to, result);
+				return result;
+			});
+		}
+
+		long[] shortfalls = new long[needs.size];
+		long failed = 0;
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<TaskResult> future : pool.invokeAll(work)) {
+				TaskResult result = future.get();
+				for (int c = 0; c < shortfalls.length; c++) {
+					shortfalls[c] += result.shortfalls[c];
+				}
+				failed += result.failed;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Monte Carlo run interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Monte Carlo scenario failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		return new MonteCarloResult(gains, shortfalls, failed, needs);
+	}
+
+	private interface ScenarioTask {
+		void run(SplittableRandom random, int from, int to, TaskResult result);
+	}
+
+	/**
+	 * What one task writes: its slice of the shared gains array and its own counters.
+	 */
+	private static class TaskResult {
+
+		final double[] gains;
+		final long[] shortfalls;
+		long failed;
+
+		TaskResult(double[] gains, int needs) {
+			this.gains = gains;
+			this.shortfalls = new long[needs];
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of total gain over the scenarios of a {@link MonteCarloEngine} run, and how often
+ * each need was left short.
+ */
+public class MonteCarloResult {
+
+	final double[] sortedGains;
+	final long[] shortfalls;
+	final long failed;
+	final NeedBook needs;
+
+	MonteCarloResult(double[] gains, long[] shortfalls, long failed, NeedBook needs) {
+		this.sortedGains = gains;
+		Arrays.sort(this.sortedGains);
+		this.shortfalls = shortfalls;
+		this.failed = failed;
+		this.needs = needs;
+	}
+
+	public int getScenarios() {
+		return sortedGains.length;
+	}
+
+	/**
+	 * Nearest-rank percentile of the total gain, p in [0, 100].
+	 */
+	public double percentile(double p) {
+
+		if (sortedGains.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(p / 100.0 * sortedGains.length);
+		return sortedGains[Math.min(sortedGains.length - 1, Math.max(0, rank - 1))];
+	}
+
+	public double getMean() {
+		double sum = 0;
+		for (double gain : sortedGains) {
+			sum += gain;
+		}
+		return sortedGains.length > 0 ? sum / sortedGains.length : 0;
+	}
+
+	public double getStandardDeviation() {
+
+		if (sortedGains.length < 2) {
+			return 0;
+		}
+		double mean = getMean();
+		double squares = 0;
+		for (double gain : sortedGains) {
+			squares += (gain - mean) * (gain - mean);
+		}
+		return Math.sqrt(squares / (sortedGains.length - 1));
+	}
+
+	public double getShortfallProbability(int need) {
+		return sortedGains.length > 0 ? (double) shortfalls[need] / sortedGains.length : 0;
+	}
+
+	/**
+	 * Scenarios where re-optimizing found no feasible allocation.
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	@Override
+	public String toString() {
+
+		StringBuilder text = new StringBuilder()
+				.append("Scenarios: [").append(getScenarios()).append("] ")
+				.append("Mean: [").append(getMean()).append("] ")
+				.append("P5: [").append(percentile(5)).append("] ")
+				.append("P50: [").append(percentile(50)).append("] ")
+				.append("P95: [").append(percentile(95)).append("]");
+		if (failed > 0) {
+			text.append(" Failed: [").append(failed).append("]");
+		}
+		for (int c = 0; c < shortfalls.length; c++) {
+			if (shortfalls[c] > 0) {
+				text.append("\n").append(needs.name[c]).append(" shortfall: [")
+						.append(getShortfallProbability(c)).append("]");
+			}
+		}
+		return text.toString();
+	}
+}
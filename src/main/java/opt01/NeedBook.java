@@ -0,0 +1,73 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Needs stored as parallel primitive arrays, one slot per row of the Needs sheet.
+ */
+public class NeedBook {
+
+	static final int INITIAL_CAPACITY = 16;
+
+	int size;
+	String[] name = new String[INITIAL_CAPACITY];
+	double[] amount = new double[INITIAL_CAPACITY];
+	long[] daysUntilDue = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Wraps already filled columns, as read back from a snapshot, without copying them.
+	 */
+	static NeedBook wrap(int size, String[] name, double[] amount, long[] daysUntilDue) {
+
+		NeedBook book = new NeedBook();
+		book.size = size;
+		book.name = name;
+		book.amount = amount;
+		book.daysUntilDue = daysUntilDue;
+		return book;
+	}
+
+	public int add(String name, double amount, long daysUntilDue) {
+
+		if (size == this.amount.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+			this.name = Arrays.copyOf(this.name, capacity);
+			this.amount = Arrays.copyOf(this.amount, capacity);
+			this.daysUntilDue = Arrays.copyOf(this.daysUntilDue, capacity);
+		}
+
+		this.name[size] = name;
+		this.amount[size] = amount;
+		this.daysUntilDue[size] = daysUntilDue;
+		return size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int column) {
+		return name[column];
+	}
+
+	public double getAmount(int column) {
+		return amount[column];
+	}
+
+	public long getDaysUntilDue(int column) {
+		return daysUntilDue[column];
+	}
+
+	public Need get(int column) {
+		return new Need(name[column], daysUntilDue[column], amount[column]);
+	}
+
+	public Need[] toArray() {
+
+		Need[] needs = new Need[size];
+		for (int c = 0; c < size; c++) {
+			needs[c] = get(c);
+		}
+		return needs;
+	}
+}
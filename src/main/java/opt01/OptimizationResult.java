@@ -0,0 +1,75 @@
+package opt01;
+
+/**
+ * Outcome of one portfolio: status, objective and the fraction of each need
+ * funded by each eligible investment.
+ */
+public class OptimizationResult {
+
+	String name;
+	SolveStatus status;
+	double objectiveValue;
+	EligiblePairs pairs;
+	double[] allocation;
+	long elapsedNanos;
+	String engine;
+	String error;
+
+	public OptimizationResult(String name, SolveStatus status, double objectiveValue, EligiblePairs pairs,
+			double[] allocation, long elapsedNanos) {
+		this.name = name;
+		this.status = status;
+		this.objectiveValue = objectiveValue;
+		this.pairs = pairs;
+		this.allocation = allocation;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public static OptimizationResult failed(String name, Throwable error, long elapsedNanos) {
+		OptimizationResult result = new OptimizationResult(name, SolveStatus.ABNORMAL, 0, null, null, elapsedNanos);
+		result.error = error.toString();
+		return result;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public SolveStatus getStatus() {
+		return status;
+	}
+
+	public double getObjectiveValue() {
+		return objectiveValue;
+	}
+
+	public EligiblePairs getPairs() {
+		return pairs;
+	}
+
+	public double[] getAllocation() {
+		return allocation;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public String getEngine() {
+		return engine;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "Name: [" + name + "] " +
+			   "Status: [" + status + "] " +
+			   (engine != null ? "Engine: [" + engine + "] " : "") +
+			   "Gain: [" + objectiveValue + "] " +
+			   "Time: [" + elapsedNanos / 1_000_000 + " ms]" +
+			   (error != null ? " Error: [" + error + "]" : "");
+	}
+}
@@ -0,0 +1,103 @@
+package opt01;
+
+import java.io.IOException;
+
+/**
+ * One portfolio optimization with all of its state held by the instance, so several
+ * sessions can run side by side. The backend is pluggable: an OR-Tools solver id, or the
+ * in-process simplex, which never loads the native library. With a {@link SolutionCache} set, a
+ * problem that was already solved is answered from the cache. The model is built from the
+ * {@link Presolve presolved} portfolio unless -Dopt01.presolve=false.
+ */
+public class OptimizationSession {
+
+	static final String SOLVER_PROPERTY = "opt01.solver";
+	static final String DEFAULT_SOLVER = BackendSelector.AUTO_BACKEND;
+
+	private final String name;
+	private final Portfolio portfolio;
+	private final LpSolver solver;
+	private SolutionCache cache;
+	private EligiblePairs pairs;
+
+	public OptimizationSession(String name, Portfolio portfolio, LpSolver solver) {
+		this.name = name;
+		this.portfolio = portfolio;
+		this.solver = solver;
+	}
+
+	public OptimizationSession(String name, Portfolio portfolio) {
+		this(name, portfolio, LpSolver.forConfig(SolverConfig.fromProperties()));
+	}
+
+	public static OptimizationSession fromWorkbook(String path) throws IOException {
+		return new OptimizationSession(path, PortfolioSource.load(path));
+	}
+
+	public OptimizationResult solve() {
+
+		long start = System.nanoTime();
+
+		if (pairs == null) {
+			pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		}
+		SolutionCache.Fingerprint fingerprint = null;
+		if (cache != null) {
+			fingerprint = SolutionCache.fingerprint(portfolio, pairs,
+					SolutionCache.solverSettings(solver, Presolve.ENABLED));
+			OptimizationResult cached = cache.lookup(name, fingerprint, pairs, start);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		LinearProgram lp;
+		Presolve presolve = null;
+		EligiblePairs modelPairs = pairs;
+		if (Presolve.ENABLED) {
+			presolve = Presolve.run(portfolio);
+			Portfolio reduced = presolve.getReduced();
+			modelPairs = EligiblePairs.build(reduced.investments, reduced.needs);
+			lp = LinearProgram.forAllocation(reduced.investments, reduced.needs, modelPairs);
+			presolve.tightenBounds(lp);
+		} else {
+			lp = LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+		}
+		LpSolution solution = solver.solve(lp);
+
+		double[] allocation;
+		if (solution.values == null) {
+			allocation = new double[pairs.nonZeros()];
+		} else {
+			allocation = presolve != null ? presolve.expand(modelPairs, solution.values, pairs) : solution.values;
+		}
+		OptimizationResult result = new OptimizationResult(name, solution.status, solution.objectiveValue, pairs,
+				allocation, System.nanoTime() - start);
+		result.engine = solution.engine;
+		if (fingerprint != null) {
+			cache.store(fingerprint, result);
+		}
+		return result;
+	}
+
+	public OptimizationSession setCache(SolutionCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Pairs the caller already built from this portfolio, so solve() doesn't build them again.
+	 */
+	public OptimizationSession setPairs(EligiblePairs pairs) {
+		this.pairs = pairs;
+		return this;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Portfolio getPortfolio() {
+		return portfolio;
+	}
+}
@@ -1,29 +1,39 @@
 package opt01;
 
-	import java.io.FileNotFoundException;
 	import java.io.IOException;
 	import java.io.InputStream;
-	import java.util.Date;
+	import java.util.ArrayList;
+	import java.util.Arrays;
+	import java.util.List;
 	import java.util.Properties;
 
 public class OptimizeGetPropertyValues {
 
+	static final String PROPERTIES_FILE = "config.properties";
 
-	
+	/**
+	 * Prints the solver configuration that config.properties, system properties and the arguments add up to.
+	 */
 	public static void main(String[] args) throws IOException{
-		String result = "";
-		InputStream inputStream;
-		
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		System.out.println(SolverConfig.fromProperties().withArguments(arguments));
+	}
+
+	/**
+	 * config.properties from the classpath, or no properties when there is none.
+	 */
+	public static Properties load() throws IOException {
 		Properties prop = new Properties();
-		String propFileName = "config.properties";
-		inputStream = OptimizeGetPropertyValues.class.getClassLoader().getResourceAsStream(propFileName)
-		
+		InputStream inputStream = OptimizeGetPropertyValues.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE);
+
 		if (inputStream != null) {
-			prop.load(inputStream);
-		} else {
-			throw new FileNotFoundException("Property file " + propFileName + " not found.");
+			try {
+				prop.load(inputStream);
+			} finally {
+				inputStream.close();
+			}
 		}
-		
+		return prop;
 	}
-	
+
 }
@@ -1,35 +1,49 @@
 package opt01;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import org.apache.commons.compress.utils.Lists;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import com.google.ortools.linearsolver.*;
 
 public class OptimizeInvestments {
 
 	static HashMap<String, InvestmentLimits> limits;
-	static double[][] gains;
-	static FileInputStream file;
 	static long[] terms;
-	static Need[] needsList;
-	static Investment[] investmentList;
-	static List<Investment> investmentListNoDups;
+	static NeedBook needs;
+	static InvestmentBook investments;
+	static RateIndex rates;
 	static final int DAYS_IN_YEAR = 360;
-	static final String DATA_FILE_PATH = "src\\\\main\\\\resources\\\\data.xlsx";
+	static String dataFilePath = PortfolioSource.DATA_FILE_PATH;
 	static MPSolver solver;	
-	static MPVariable[][] x;
+	static SolverConfig solverConfig = SolverConfig.DEFAULT;
+	static MPSolverParameters solverParameters;
+	static SolveStatus status;
+	static final String OUTPUT_PATH = System.getProperty("opt01.output");
+	static final boolean LONG_OUTPUT = Boolean.getBoolean("opt01.output.long");
+	static final long SIMULATION_DAYS = Long.getLong("opt01.simulate.days", 0);
+	static final int SCENARIOS = Integer.getInteger("opt01.montecarlo.scenarios", 0);
+	static final String MODEL_EXPORT_PATH = System.getProperty("opt01.model.export");
+	static final boolean NAME_VARIABLES = Boolean.getBoolean("opt01.model.names");
+	static final boolean SENSITIVITY = Boolean.getBoolean("opt01.sensitivity");
+	static final String SWEEP_PRODUCT = System.getProperty("opt01.sweep");
+	static final int SWEEP_POINTS = Integer.getInteger("opt01.sweep.points", 1001);
+	static EligiblePairs pairs;
+	static Presolve presolve;
+	static InvestmentBook modelInvestments;
+	static NeedBook modelNeeds;
+	static EligiblePairs modelPairs;
+	static final boolean BULK_MODEL = Boolean.parseBoolean(System.getProperty("opt01.model.bulk", "true"));
+	static SparseModelBuilder model;
+	static BulkModelBuilder bulkModel;
+	static LinearProgram lp;
+	static MPVariable[] x;
 	static MPObjective objective;
 	static MPSolver.ResultStatus resultStatus;
 	
@@ -39,176 +53,249 @@ public class OptimizeInvestments {
 	}
 
 	public static void main(String[] args) throws Exception {
-		
-		loadProgramVariables();
-		
-		calculateGainsTable();
-		printTable(gains);
 
-		initializeSolver();
-		initializeVariables();
-		
-		setupConstrains();
-		setupObjective();
+		// --time-limit=, --gap=, --threads= and --backend= override config.properties
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		solverConfig = SolverConfig.fromProperties().withArguments(arguments);
 
-		printSolution();
+		// A directory or a glob of client workbooks runs through the pipeline instead
+		if (arguments.size() > 0 && (arguments.size() > 1 || WorkbookPipeline.isBatchInput(arguments.get(0)))) {
+			WorkbookPipeline.main(args);
+			return;
+		}
+		if (arguments.size() > 0) {
+			dataFilePath = arguments.get(0);
+		}
+		// a single workbook is modelled and solved through MPSolver
+		if (solverConfig.inProcess()) {
+			throw new IllegalArgumentException("Backend " + solverConfig.backend
+					+ " doesn't run on OR-Tools; use AUTO or an engine such as GLOP, or pass a directory or glob"
+					+ " to solve through the pipeline");
+		}
+		
+		RunInstrumentation run = new RunInstrumentation(dataFilePath);
+
+		run.time("load", OptimizeInvestments::loadProgramVariables);
+		run.time("presolve", OptimizeInvestments::presolve);
+		run.time("solverInit", OptimizeInvestments::initializeSolver);
+		run.time("variables", OptimizeInvestments::initializeVariables);
+		run.time("constraints", () -> {
+			setupConstrains();
+			run.modelSize(solver.numVariables(), solver.numConstraints(), 2L * modelPairs.nonZeros());
+		});
+		if (MODEL_EXPORT_PATH != null) {
+			printDebugInfo(solver);
+		}
+		run.time("solve", () -> {
+			setupObjective();
+			run.solverResult(solver.iterations(), resultStatus);
+		});
+		run.time("print", OptimizeInvestments::printSolution);
+		if (SENSITIVITY) {
+			run.time("sensitivity", OptimizeInvestments::printSensitivity);
+		}
+		if (SWEEP_PRODUCT != null) {
+			run.time("sweep", OptimizeInvestments::sweepRate);
+		}
+		if (SCENARIOS > 0) {
+			run.time("monteCarlo", OptimizeInvestments::simulateRates);
+		}
+		if (SIMULATION_DAYS > 0) {
+			run.time("rollover", OptimizeInvestments::simulateRollover);
+		}
 
+		System.out.println(run.summary());
 	}
 
 	private static void initializeSolver() {
-		solver = MPSolver.createSolver("AssignmentMip", "CBC");	
+
+		// Every variable of the assignment model is continuous, so an LP engine is enough
+		pairs = EligiblePairs.build(investments, needs);
+		modelPairs = presolve != null ? EligiblePairs.build(modelInvestments, modelNeeds) : pairs;
+		String solverId = solverConfig.orToolsEngine();
+		if (solverId == null) {
+			solverId = BackendSelector.select(2L * modelPairs.nonZeros());
+		}
+
+		solver = MPSolver.createSolver("Assignment", solverId);
+		if (solver == null) {
+			solverId = BackendSelector.LP_SOLVER;
+			solver = MPSolver.createSolver("Assignment", solverId);
+		}
+		solverParameters = solverConfig.apply(solver);
+		System.out.println(solverConfig.withBackend(solverId));
 	}
 
-	private static void printDebugInfo(MPSolver solver) {
+	private static void printDebugInfo(MPSolver solver) throws IOException {
 		System.out.println("--------------------------");
 		System.out.println("Variables:" + solver.numVariables());
 		System.out.println("Constrains:" + solver.numConstraints());	
-		System.out.println("Model:" + solver.exportModelAsLpFormat());	
+		if (MODEL_EXPORT_PATH != null) {
+			new LpFormatWriter(linearProgram()).write(Paths.get(MODEL_EXPORT_PATH));
+			System.out.println("Model: " + MODEL_EXPORT_PATH);	
+		}
 		System.out.println("--------------------------");
 	}
+	
+	
+	private static void loadProgramVariables() throws IOException {
 
-	private static void loadProgramVariables() throws FileNotFoundException, IOException {
-
-		XSSFWorkbook excelBook = new XSSFWorkbook(new FileInputStream(DATA_FILE_PATH));
+		Portfolio portfolio = PortfolioSource.load(dataFilePath);
 		
-		limits = readInvestmentLimitsFromFile(excelBook);
+		limits = portfolio.getLimits();
 		terms = loadTerms();
-		needsList = readNeedsFromFile(excelBook);
-		investmentList = readInvestmentsFromFile(excelBook);
-		investmentListNoDups = removeDupsFrom(investmentList);		
-		excelBook.close();
+		needs = portfolio.getNeeds();
+		investments = portfolio.getInvestments();
+		rates = RateIndex.build(investments);
 	}
 
-	private static void calculateGainsTable() {
-
-		gains = new double[investmentList.length][needsList.length];
-
-		for(int r=0; r<gains.length; r++) {
-			for(int c=0; c<gains[0].length; c++) {
-				if (getNeedTermFromCell(r,c) >= getInvestmentTermFromCell(r, c)){
-					gains[r][c] = calculateGainInOneYear(needsList[c].getAmount(), investmentList[r].getInterestRate() / DAYS_IN_YEAR);
-				}
-			}
+	/**
+	 * Drops dominated products and merges needs due the same day; the model is built from what is left.
+	 * Skipped for a sensitivity report, which prices every product, need and account of the original model.
+	 */
+	private static void presolve() {
+
+		modelInvestments = investments;
+		modelNeeds = needs;
+		if (Presolve.ENABLED && !SENSITIVITY) {
+			presolve = Presolve.run(new Portfolio(limits, needs, investments));
+			modelInvestments = presolve.getReduced().getInvestments();
+			modelNeeds = presolve.getReduced().getNeeds();
 		}
 	}
 	
 	
-	private static void printSolution() {
+	private static void printSolution() throws IOException {
 
 		if (resultStatus == MPSolver.ResultStatus.OPTIMAL || resultStatus == MPSolver.ResultStatus.FEASIBLE) {
+			if (status == SolveStatus.TIME_LIMIT) {
+				System.out.println("Time limit reached, best allocation found so far:");
+			}
 			System.out.println("Total cost: " + objective.value() + "\n");
 			
-			System.out.print("\t");
-			Arrays.asList(needsList).forEach(result -> System.out.print(result.getName() + "\t"));
-			System.out.println();
-			
-			for (int r = 0; r < x.length; ++r) {
-				System.out.print(investmentList[r].getAccountName() +"_"+ investmentList[r].getTerm() + "\t");
-				for (int c = 0; c < x[0].length; ++c) {
-					System.out.print(x[r][c].solutionValue()*gains[r][c] + "\t");
-				}
-				System.out.println();
+			double[] allocation = allocation();
+			ResultWriter writer = new ResultWriter(investments, needs, pairs, allocation);
+
+			if (OUTPUT_PATH != null) {
+				writer.write(Paths.get(OUTPUT_PATH), LONG_OUTPUT);
+				System.out.println("Allocation written to " + OUTPUT_PATH);
+			} else {
+				Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+				writer.writeDelimited(out, '\t', LONG_OUTPUT);
+				out.flush();
 			}
 		
+		} else if (status == SolveStatus.NOT_SOLVED && solverConfig.timeLimitMillis > 0) {
+			System.err.println("No solution found within " + solverConfig.timeLimitMillis + " ms.");
 		} else {
 			System.err.println("No solution found.");
 		}
 	}
 
-	private static void setupObjective() {
+	private static double[] allocation() {
 
-		objective = solver.objective();
-		for (int i = 0; i < gains.length; ++i) {
-			for (int j = 0; j < gains[0].length; ++j) {
-				objective.setCoefficient(x[i][j], gains[i][j]);
-			}
+		double[] allocation = new double[x.length];
+		for (int k = 0; k < x.length; k++) {
+			allocation[k] = x[k].solutionValue();
 		}
-
-		objective.setMaximization();
-		
-		resultStatus = solver.solve();		
-	}
-
-	private static List<Investment> removeDupsFrom(Investment[] invListWithDups) {
-		return Arrays.asList(invListWithDups).stream().distinct().collect(Collectors.toList());
+		return presolve != null ? presolve.expand(modelPairs, allocation, pairs) : allocation;
 	}
 
-	private static HashMap<String, InvestmentLimits> readInvestmentLimitsFromFile(XSSFWorkbook excelBook)
-			throws FileNotFoundException, IOException {
+	/**
+	 * Duals of the account and need constraints and reduced costs of the cells, as the solver left them.
+	 * The model is the unreduced one: presolve would merge needs, drop products and turn account
+	 * maxima into cell bounds, none of which a report by product, need and account can show.
+	 */
+	private static void printSensitivity() {
 
-		HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();		
-		XSSFSheet excelSheet = excelBook.getSheet("Limits");
+		if (resultStatus == MPSolver.ResultStatus.OPTIMAL || resultStatus == MPSolver.ResultStatus.FEASIBLE) {
+			LinearProgram program = linearProgram();
+			MPConstraint[] rows = BULK_MODEL ? bulkModel.rows : new MPConstraint[program.numConstraints];
+			if (!BULK_MODEL) {
+				for (int account = 0; account < modelInvestments.accountCount; account++) {
+					if (program.accountRow[account] >= 0) {
+						rows[program.accountRow[account]] = model.accountConstraints[account];
+					}
+				}
+				for (int c = 0; c < modelNeeds.size; c++) {
+					rows[program.accountRows + c] = model.needConstraints[c];
+				}
+			}
 
-		for (Row excelRow : excelSheet) {
-			String name = excelRow.getCell(0).getStringCellValue();
-			if (excelRow.getRowNum() != 0) {
-				double min = excelRow.getCell(1).getNumericCellValue();
-				double max = excelRow.getCell(2).getNumericCellValue();
-				limits.put(name, new InvestmentLimits(name, min, max));
+			double[] duals = new double[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				duals[i] = rows[i].dualValue();
+			}
+			double[] reducedCosts = new double[x.length];
+			double[] values = new double[x.length];
+			for (int k = 0; k < x.length; k++) {
+				reducedCosts[k] = x[k].reducedCost();
+				values[k] = x[k].solutionValue();
 			}
+			LpSolution solution = new LpSolution(status, objective.value(), values, duals,
+					reducedCosts, solver.iterations(), "OR-Tools");
+			System.out.println(new SensitivityReport(program, solution));
 		}
-
-		return limits;
-
 	}
 
-	private static Investment[] readInvestmentsFromFile(XSSFWorkbook excelBook) throws FileNotFoundException, IOException {
-
-		XSSFSheet excelSheet = excelBook.getSheet("Investments");
-
-		List<Investment> investmentList = new ArrayList<Investment>();
+	/**
+	 * How far the rate of one product ("account:term") can drop before the allocation changes,
+	 * swept from its current value down to zero.
+	 */
+	private static void sweepRate() {
+
+		int separator = SWEEP_PRODUCT.lastIndexOf(':');
+		String account = SWEEP_PRODUCT.substring(0, separator);
+		long term = Long.parseLong(SWEEP_PRODUCT.substring(separator + 1));
+		double rate = investments.rate[ParametricSweep.row(investments, account, term)];
+
+		ParametricSweep sweep = new ParametricSweep(LinearProgram.forAllocation(investments, needs, pairs),
+				LpSolver.forName(System.getProperty("opt01.sweep.solver", LpSolver.JAVA_BACKEND)));
+		System.out.println(sweep.sweep(ParametricSweep.rate(investments, account, term),
+				ParametricSweep.range(rate, 0, SWEEP_POINTS)));
+	}
 
-		for (Row excelRow : excelSheet) {
-			if (excelRow.getRowNum() != 0) {
-				String nombre = excelRow.getCell(0).getStringCellValue();
-				long plazo = (long) excelRow.getCell(1).getNumericCellValue();
-				double tasa = excelRow.getCell(2).getNumericCellValue();
-				double minInvestment = limits.get(nombre).minInvestment;
-				double maxInvestment = limits.get(nombre).maxInvestment;
+	/**
+	 * Rolls the optimal allocation forward over the term ladder, reinvesting whatever matures
+	 * before the need it was meant for.
+	 */
+	private static void simulateRollover() {
 
-				investmentList.add(new Investment(nombre, tasa, plazo, minInvestment, maxInvestment));
-			}
+		if (resultStatus == MPSolver.ResultStatus.OPTIMAL || resultStatus == MPSolver.ResultStatus.FEASIBLE) {
+			RolloverSimulator simulator = new RolloverSimulator(
+					new Portfolio(limits, needs, investments), rates, terms);
+			System.out.println("Rollover: " + simulator.simulate(pairs, allocation(), SIMULATION_DAYS));
 		}
-
-		return investmentList.toArray(new Investment[investmentList.size()]);
 	}
 
-	private static Need[] readNeedsFromFile(XSSFWorkbook excelBook) throws FileNotFoundException, IOException {
-		file = new FileInputStream(DATA_FILE_PATH);
-		XSSFSheet excelSheet = excelBook.getSheet("Needs");
+	/**
+	 * Gain distribution of the optimal allocation when every account's rates move randomly.
+	 */
+	private static void simulateRates() {
 
-		List<Need> needList = new ArrayList<Need>();
-
-		for (Row excelRow : excelSheet) {
-			if (excelRow.getRowNum() != 0) {
-
-				String name = excelRow.getCell(0).getStringCellValue();
-				double amount = excelRow.getCell(1).getNumericCellValue();
-				long daysUntilDue = (long) excelRow.getCell(2).getNumericCellValue();
-
-				needList.add(new Need(name, daysUntilDue, amount));
-			}
+		if (resultStatus == MPSolver.ResultStatus.OPTIMAL || resultStatus == MPSolver.ResultStatus.FEASIBLE) {
+			MonteCarloEngine engine = new MonteCarloEngine(new Portfolio(limits, needs, investments), pairs);
+			System.out.println("Monte Carlo: " + engine.evaluate(allocation(), SCENARIOS, System.nanoTime()));
 		}
-
-		return needList.toArray(new Need[needList.size()]);
 	}
 
-
-	private static double calculateGainInOneYear(double currentAmount, double investmentDailyRate) {
-		return currentAmount + currentAmount * investmentDailyRate * DAYS_IN_YEAR;
+	private static LinearProgram linearProgram() {
+		if (lp == null) {
+			lp = LinearProgram.forAllocation(modelInvestments, modelNeeds, modelPairs);
+			if (presolve != null) {
+				presolve.tightenBounds(lp);
+			}
+		}
+		return lp;
 	}
 
+	private static void setupObjective() {
 
-
-	private static double readInterestRate(long term, String accountName) {
-
-		double maxInterestRateForTerm = 0;
-		for (int r = 0; r < investmentList.length; r++) {
-			if (investmentList[r].getAccountName().equals(accountName) && investmentList[r].getTerm() <= term) {
-				maxInterestRateForTerm = Math.max(maxInterestRateForTerm, investmentList[r].getInterestRate());
-			}
-		}
-		return maxInterestRateForTerm;
+		objective = BULK_MODEL ? solver.objective() : model.setupObjective();
+		
+		long solveStart = System.nanoTime();
+		resultStatus = solver.solve(solverParameters);
+		status = solverConfig.status(resultStatus, (System.nanoTime() - solveStart) / 1_000_000);
 	}
 
 	private static void setupConstrains() {
@@ -222,96 +309,37 @@ public class OptimizeInvestments {
 	}
 	
 	private static void limitsPerInvestmentOption() {
-
-		String lastInvestmentName = "";
-		MPConstraint c0 = null;
-		boolean isMultiRowConstraint = false;
-		
-		for(int r=0; r<gains.length; r++) {
-
-			InvestmentLimits investmentLimit = limits.get(investmentList[r].getAccountName());
-			double max = investmentLimit.maxInvestment;
-			double min = investmentLimit.minInvestment;
-				
-			isMultiRowConstraint = lastInvestmentName.equals(getInvestmentNameFromCell(r, -1));
-			
-			if (!isMultiRowConstraint) {
-				c0 = solver.makeConstraint(min, max, getInvestmentNameFromCell(r, -1));
-			}
-		
-			for(int c=0; c<gains[0].length; c++) {
-				c0.setCoefficient(x[r][c], gains[r][c]);
-			}
-			
-			lastInvestmentName = getInvestmentNameFromCell(r, -1);
+		if (!BULK_MODEL) {
+			model.limitsPerInvestmentOption();
 		}
 	}
 	
 	private static void limitPerNeed() {
-		
-		for (int c = 0; c< gains[0].length; c++) {
-			MPConstraint c0 = solver.makeConstraint(getNeedAmountFromCell(-1, c), getNeedAmountFromCell(-1, c), getNeedFromCell(-1, c));
-			for (int r = 0; r < gains.length; r++) {
-				c0.setCoefficient(x[r][c], getNeedAmountFromCell(r, c));
-			}
+		if (!BULK_MODEL) {
+			model.limitPerNeed();
 		}
-
-	}
-	
-	private static String getInvestmentNameFromCell(int row, int column) {
-		return investmentList[row].getAccountName();
-	}
-
-	private static double getRateFromCell(int row, int column) {
-		return investmentList[row].getInterestRate();
-	}
-	
-	private static long getInvestmentTermFromCell(int row, int column) {
-		return investmentList[row].getTerm();
-	}	
-
-	private static long getNeedTermFromCell(int row, int column) {
-		return needsList[column].getDaysUntilDue();
-	}	
-	
-	private static String getNeedFromCell(int row, int column) {
-		return needsList[column].getName();
-	}
-	
-	private static double getNeedAmountFromCell(int row, int column) {
-		return needsList[column].getAmount();
-	}
-	
-	private static double getDaysDueFromCell(int row, int column) {
-		return needsList[column].getDaysUntilDue();	
 	}
 	
 	private static void initializeVariables() {
 
-		x = new MPVariable[gains.length][gains[0].length];
-		
-		for (int r = 0; r < gains.length; r++) {
-			for (int c = 0; c < gains[0].length; c++) {
-				String varname = String.format("x[%s][%s]",r,c);
-				x[r][c] = solver.makeNumVar(0, 1.0, varname);
-			}
+		// Only the (investment, need) pairs where the term fits before the due date get a variable
+		if (BULK_MODEL) {
+			// The whole model, constraints and objective included, reaches the solver in one call
+			bulkModel = new BulkModelBuilder(solver, linearProgram(), NAME_VARIABLES);
+			bulkModel.load();
+			x = bulkModel.x;
+		} else {
+			model = new SparseModelBuilder(solver, modelPairs, modelInvestments, modelNeeds, NAME_VARIABLES);
+			model.initializeVariables();
+			x = model.x;
+		}
+		if (presolve != null) {
+			System.out.println(presolve);
 		}
 	}
 
-	private static long[] loadTerms() {
+	static long[] loadTerms() {
 		return new long[] { 1, 7, 14, 28, 60, 90, 120, 150, 180, 210, 240, 300, 330, 360 };
 	}
-	
-	private static void printTable(double[][] table) {
-
-		DecimalFormat df = new DecimalFormat("#.##");
-
-		for (double[] row : table) {
-			for (double cell : row) {
-				System.out.print(df.format(cell) + "\t");
-			}
-			System.out.println();
-		}
-	}	
 
 }
\ No newline at end of file
@@ -0,0 +1,299 @@
+package opt01;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Resident optimizer for running next to an application: the native library and the reference
+ * portfolio (limits and investment catalogue) are loaded once, then every request only sends
+ * its needs in the {@link PortfolioRecords} format. Endpoints, on localhost only:
+ * <ul>
+ * <li>POST /optimize: records in, JSON allocation out;</li>
+ * <li>GET /health: liveness and free solvers;</li>
+ * <li>GET /stats: request counters, time-limited solves, latency percentiles and solution cache counters.</li>
+ * </ul>
+ * Requests are handled on virtual threads when the JVM has them (Java 21+), otherwise on a
+ * fixed pool. Solving is always bounded by a pool of solver instances; a request that can't get
+ * one within the timeout is answered 503. Repeated problems are answered from a shared
+ * {@link SolutionCache} without taking a solver. The solvers are held to the {@link SolverConfig}
+ * time limit, so a solve that runs out of it answers with the best allocation found and status TIME_LIMIT.
+ */
+public class OptimizerServer {
+
+	static final String PORT_PROPERTY = "opt01.server.port";
+	static final String SOLVERS_PROPERTY = "opt01.server.solvers";
+	static final String TIMEOUT_PROPERTY = "opt01.server.solverTimeoutMillis";
+	static final int DEFAULT_PORT = 8080;
+	static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+	static final int HANDLERS_PER_SOLVER = 4;
+	static final int LATENCY_SAMPLES = 4096;
+
+	private final Portfolio reference;
+	private final ArrayBlockingQueue<LpSolver> solvers;
+	private final int solverCount;
+	private final String solverSettings;
+	private final long timeoutMillis;
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final SolutionCache cache = SolutionCache.fromProperties();
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timeLimited = new AtomicLong();
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long latencyCount;
+
+	public OptimizerServer(Portfolio reference, LpSolver[] solverPool, int port, long timeoutMillis) throws IOException {
+
+		this.reference = reference;
+		this.solvers = new ArrayBlockingQueue<LpSolver>(solverPool.length, false, Arrays.asList(solverPool));
+		this.solverCount = solverPool.length;
+		this.solverSettings = SolutionCache.solverSettings(solverPool[0], Presolve.ENABLED);
+		this.timeoutMillis = timeoutMillis;
+		this.handlers = handlerExecutor(HANDLERS_PER_SOLVER * solverPool.length);
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(handlers);
+		server.createContext("/optimize", this::optimize);
+		server.createContext("/health", this::health);
+		server.createContext("/stats", this::stats);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		SolverConfig config = SolverConfig.fromProperties().withArguments(arguments);
+		String path = arguments.size() > 0 ? arguments.get(0) : PortfolioSource.DATA_FILE_PATH;
+		int solverCount = Integer.getInteger(SOLVERS_PROPERTY, Runtime.getRuntime().availableProcessors());
+
+		LpSolver[] pool = new LpSolver[solverCount];
+		for (int i = 0; i < solverCount; i++) {
+			pool[i] = LpSolver.forConfig(config);
+		}
+
+		OptimizerServer server = new OptimizerServer(PortfolioSource.load(path), pool,
+				Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT), Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_MILLIS));
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		server.start();
+		System.out.println("Serving " + path + " on " + server.getAddress() + " with " + solverCount + " solvers, "
+				+ config);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(1);
+		handlers.shutdown();
+	}
+
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() when the running JVM has it. It is looked up
+	 * reflectively because the project still compiles for Java 8.
+	 */
+	static ExecutorService handlerExecutor(int fallbackThreads) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(fallbackThreads);
+		}
+	}
+
+	private void optimize(HttpExchange exchange) throws IOException {
+
+		long start = System.nanoTime();
+		requests.incrementAndGet();
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				respond(exchange, 405, "{\"error\":\"POST a portfolio\"}");
+				return;
+			}
+
+			Portfolio portfolio;
+			try {
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+				portfolio = PortfolioRecords.parse(in, reference);
+			} catch (IllegalArgumentException e) {
+				failures.incrementAndGet();
+				respond(exchange, 400, "{\"error\":" + quote(e.getMessage()) + "}");
+				return;
+			}
+
+			EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+			SolutionCache.Fingerprint fingerprint = SolutionCache.fingerprint(portfolio, pairs, solverSettings);
+			OptimizationResult cached = cache.lookup("request", fingerprint, pairs, start);
+			if (cached != null) {
+				respond(exchange, 200, toJson(portfolio, cached));
+				return;
+			}
+
+			LpSolver solver = solvers.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+			if (solver == null) {
+				rejected.incrementAndGet();
+				respond(exchange, 503, "{\"error\":\"all solvers busy\"}");
+				return;
+			}
+
+			OptimizationResult result;
+			try {
+				result = new OptimizationSession("request", portfolio, solver).setPairs(pairs).solve();
+				cache.store(fingerprint, result);
+				if (result.getStatus() == SolveStatus.TIME_LIMIT) {
+					timeLimited.incrementAndGet();
+				}
+			} finally {
+				solvers.offer(solver);
+			}
+			respond(exchange, 200, toJson(portfolio, result));
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failures.incrementAndGet();
+			respond(exchange, 503, "{\"error\":\"interrupted\"}");
+		} catch (RuntimeException e) {
+			failures.incrementAndGet();
+			respond(exchange, 500, "{\"error\":" + quote(String.valueOf(e)) + "}");
+		} finally {
+			recordLatency(System.nanoTime() - start);
+		}
+	}
+
+	private void health(HttpExchange exchange) throws IOException {
+		respond(exchange, 200, "{\"status\":\"UP\",\"solvers\":" + solverCount + ",\"solversFree\":" + solvers.size()
+				+ ",\"investments\":" + reference.investments.size + "}");
+	}
+
+	private void stats(HttpExchange exchange) throws IOException {
+
+		long[] sample;
+		long count;
+		synchronized (latencies) {
+			count = latencyCount;
+			sample = Arrays.copyOf(latencies, (int) Math.min(count, LATENCY_SAMPLES));
+		}
+		Arrays.sort(sample);
+
+		respond(exchange, 200, "{\"requests\":" + requests.get() + ",\"failures\":" + failures.get() + ",\"rejected\":"
+				+ rejected.get() + ",\"timeLimited\":" + timeLimited.get() + ",\"latencyMillis\":{\"samples\":"
+				+ sample.length + ",\"p50\":"
+				+ percentileMillis(sample, 50) + ",\"p95\":" + percentileMillis(sample, 95) + ",\"p99\":"
+				+ percentileMillis(sample, 99) + ",\"max\":" + percentileMillis(sample, 100) + "},\"cache\":{\"hits\":"
+				+ cache.getHits() + ",\"diskHits\":" + cache.getDiskHits() + ",\"misses\":" + cache.getMisses()
+				+ ",\"evictions\":" + cache.getEvictions() + ",\"entries\":" + cache.size() + "}}");
+	}
+
+	/**
+	 * Keeps the last LATENCY_SAMPLES latencies for the percentiles, and reports every one to the metrics registry.
+	 */
+	private void recordLatency(long nanos) {
+		synchronized (latencies) {
+			latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+		}
+		RunInstrumentation.getRegistry().record(RunInstrumentation.METRIC_PREFIX + "server.latencyNanos", nanos);
+	}
+
+	private static double percentileMillis(long[] sorted, double p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))] / 1e6;
+	}
+
+	static String toJson(Portfolio portfolio, OptimizationResult result) {
+
+		StringBuilder json = new StringBuilder(256)
+				.append("{\"status\":\"").append(result.getStatus()).append('"')
+				.append(",\"engine\":").append(quote(result.getEngine()))
+				.append(",\"gain\":").append(number(result.getObjectiveValue()))
+				.append(",\"elapsedMillis\":").append(result.getElapsedNanos() / 1e6)
+				.append(",\"allocations\":[");
+
+		EligiblePairs pairs = result.getPairs();
+		double[] allocation = result.getAllocation();
+		InvestmentBook investments = portfolio.investments;
+		NeedBook needs = portfolio.needs;
+		boolean first = true;
+		if (result.getStatus().hasSolution()) {
+			for (int r = 0; r < pairs.rows; r++) {
+				for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+					if (Math.abs(allocation[k]) > ResultWriter.ZERO) {
+						int c = pairs.column[k];
+						json.append(first ? "" : ",")
+								.append("{\"account\":").append(quote(investments.getAccountName(r)))
+								.append(",\"term\":").append(investments.term[r])
+								.append(",\"need\":").append(quote(needs.name[c]))
+								.append(",\"share\":").append(allocation[k])
+								.append(",\"amount\":").append(allocation[k] * needs.amount[c])
+								.append(",\"gain\":").append(allocation[k] * pairs.gain[k])
+								.append('}');
+						first = false;
+					}
+				}
+			}
+		}
+		return json.append("]}").toString();
+	}
+
+	/**
+	 * JSON has no NaN or Infinity; a backend without a solution may report either as its objective.
+	 */
+	static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+	static String quote(String value) {
+
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				quoted.append('\\').append(ch);
+			} else if (ch < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) ch));
+			} else {
+				quoted.append(ch);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+}
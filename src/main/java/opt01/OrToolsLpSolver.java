@@ -0,0 +1,94 @@
+package opt01;
+
+import com.google.ortools.linearsolver.*;
+
+/**
+ * Solves a {@link LinearProgram} with one of the OR-Tools backends, creating a fresh MPSolver per call.
+ * When the requested engine is not compiled into the native library the fallback engine runs instead,
+ * and the solution reports which one it was. The {@link SolverConfig} limits apply to every solve.
+ */
+public class OrToolsLpSolver implements LpSolver {
+
+	static {
+		System.loadLibrary("jniortools");
+	}
+
+	private final String solverId;
+	private final String fallbackId;
+	private final SolverConfig config;
+
+	public OrToolsLpSolver(String solverId) {
+		this(solverId, null);
+	}
+
+	public OrToolsLpSolver(String solverId, String fallbackId) {
+		this(solverId, fallbackId, SolverConfig.DEFAULT);
+	}
+
+	public OrToolsLpSolver(String solverId, String fallbackId, SolverConfig config) {
+		this.solverId = solverId;
+		this.fallbackId = fallbackId;
+		this.config = config;
+	}
+
+	@Override
+	public String name() {
+		return solverId;
+	}
+
+	@Override
+	public SolverConfig config() {
+		return config;
+	}
+
+	@Override
+	public LpSolution solve(LinearProgram lp) {
+
+		String engine = solverId;
+		MPSolver solver = MPSolver.createSolver("LinearProgram", engine);
+		if (solver == null && fallbackId != null) {
+			engine = fallbackId;
+			solver = MPSolver.createSolver("LinearProgram", engine);
+		}
+		if (solver == null) {
+			throw new IllegalStateException("OR-Tools solver " + solverId + " is not available");
+		}
+
+		try {
+			BulkModelBuilder model = new BulkModelBuilder(solver, lp, false);
+			model.load();
+			MPVariable[] x = model.x;
+			MPConstraint[] rows = model.rows;
+			MPObjective objective = solver.objective();
+
+			MPSolverParameters parameters = config.apply(solver);
+			long solveStart = System.nanoTime();
+			MPSolver.ResultStatus resultStatus = solver.solve(parameters);
+			SolveStatus status = config.status(resultStatus, (System.nanoTime() - solveStart) / 1_000_000);
+			if (!status.hasSolution()) {
+				return new LpSolution(status, 0, null, null, null, solver.iterations(), engine);
+			}
+
+			double[] values = new double[lp.numVariables];
+			double[] reducedCosts = solver.isMip() ? null : new double[lp.numVariables];
+			for (int j = 0; j < lp.numVariables; j++) {
+				values[j] = x[j].solutionValue();
+				if (reducedCosts != null) {
+					reducedCosts[j] = x[j].reducedCost();
+				}
+			}
+
+			double[] duals = null;
+			if (!solver.isMip()) {
+				duals = new double[lp.numConstraints];
+				for (int i = 0; i < lp.numConstraints; i++) {
+					duals[i] = rows[i].dualValue();
+				}
+			}
+
+			return new LpSolution(status, objective.value(), values, duals, reducedCosts, solver.iterations(), engine);
+		} finally {
+			solver.delete();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package opt01;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves an allocation program again for every value of one parameter: a product rate or an
+ * account limit. The points are cut into batches of neighbouring values; each batch patches
+ * its own copy of the program and starts every solve from the basis of the previous point, so
+ * a sweep costs one cold solve plus a few pivots per point on backends with warm starts (the
+ * in-process simplex). Batches run in parallel on a ForkJoin pool.
+ */
+public class ParametricSweep {
+
+	static final String THREADS_PROPERTY = "opt01.sweep.threads";
+	static final int POINTS_PER_BATCH = 64;
+	static final double CHANGE_TOLERANCE = 1e-7;
+
+	private final LinearProgram base;
+	private final LpSolver solver;
+	private final int parallelism;
+
+	public ParametricSweep(LinearProgram base, LpSolver solver, int parallelism) {
+		this.base = base;
+		this.solver = solver;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public ParametricSweep(LinearProgram base, LpSolver solver) {
+		this(base, solver, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * A value of the program that a sweep moves.
+	 */
+	public interface Parameter {
+
+		void apply(LinearProgram lp, double value);
+
+		String name();
+	}
+
+	/**
+	 * Rate of one product: the gain of every cell of the row, in the objective and in its account row.
+	 */
+	public static Parameter rate(int row) {
+		return rate(row, "rate of row " + row);
+	}
+
+	public static Parameter rate(InvestmentBook investments, String accountName, long term) {
+		return rate(row(investments, accountName, term), accountName + " " + term + " days rate");
+	}
+
+	static int row(InvestmentBook investments, String accountName, long term) {
+
+		int account = investments.findAccount(accountName);
+		for (int r = 0; r < investments.size; r++) {
+			if (investments.accountId[r] == account && investments.term[r] == term) {
+				return r;
+			}
+		}
+		throw new IllegalArgumentException("No " + accountName + " product for " + term + " days");
+	}
+
+	private static Parameter rate(int row, String name) {
+
+		return new Parameter() {
+			@Override
+			public void apply(LinearProgram lp, double value) {
+				double dailyRate = value / GainsEngine.DAYS_IN_YEAR;
+				for (int k = lp.pairs.rowStart[row]; k < lp.pairs.rowStart[row + 1]; k++) {
+					double gain = GainsEngine.gainInOneYear(lp.needs.amount[lp.pairs.column[k]], dailyRate);
+					lp.objective[k] = gain;
+					lp.value[2 * k] = gain;
+				}
+			}
+
+			@Override
+			public String name() {
+				return name;
+			}
+		};
+	}
+
+	public static Parameter accountMax(InvestmentBook investments, String accountName) {
+		return accountLimit(investments, accountName, true);
+	}
+
+	public static Parameter accountMin(InvestmentBook investments, String accountName) {
+		return accountLimit(investments, accountName, false);
+	}
+
+	private static Parameter accountLimit(InvestmentBook investments, String accountName, boolean max) {
+
+		int account = investments.findAccount(accountName);
+		if (account < 0) {
+			throw new IllegalArgumentException("Unknown account " + accountName);
+		}
+		return new Parameter() {
+			@Override
+			public void apply(LinearProgram lp, double value) {
+				int row = lp.accountRow[account];
+				if (max) {
+					lp.rowUpper[row] = value;
+				} else {
+					lp.rowLower[row] = value;
+				}
+			}
+
+			@Override
+			public String name() {
+				return accountName + (max ? " maximum" : " minimum");
+			}
+		};
+	}
+
+	/**
+	 * Evenly spaced values from first to last, both included.
+	 */
+	public static double[] range(double first, double last, int points) {
+
+		double[] values = new double[points];
+		for (int p = 0; p < points; p++) {
+			values[p] = points > 1 ? first + (last - first) * p / (points - 1) : first;
+		}
+		return values;
+	}
+
+	public SweepResult sweep(Parameter parameter, double[] values) {
+
+		LpSolution reference = solver.solve(base);
+
+		int batches = (values.length + POINTS_PER_BATCH - 1) / POINTS_PER_BATCH;
+		SweepResult result = new SweepResult(parameter.name(), values, reference);
+		List<Callable<Void>> work = new ArrayList<Callable<Void>>(batches);
+		for (int b = 0; b < batches; b++) {
+			int from = b * POINTS_PER_BATCH;
+			int to = Math.min(values.length, from + POINTS_PER_BATCH);
+			work.add(() -> {
+				LinearProgram lp = base.copy();
+				LpSolution previous = reference;
+				for (int p = from; p < to; p++) {
+					parameter.apply(lp, values[p]);
+					LpSolution solution = solver.solve(lp, previous);
+					result.record(p, solution, changed(reference, solution));
+					if (solution.status.hasSolution()) {
+						previous = solution;
+					}
+				}
+				return null;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			for (Future<Void> future : pool.invokeAll(work)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Sweep interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Sweep point failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return result;
+	}
+
+	private static boolean changed(LpSolution reference, LpSolution solution) {
+
+		if (solution.status != reference.status || solution.values == null || reference.values == null) {
+			return solution.status != reference.status;
+		}
+		for (int k = 0; k < solution.values.length; k++) {
+			if (Math.abs(solution.values[k] - reference.values[k]) > CHANGE_TOLERANCE) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,147 @@
+package opt01;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JFR event for one phase of an optimization run. The model and solver fields are only
+ * filled by the phases that know them.
+ *
+ * The event type is defined at run time through jdk.jfr.EventFactory, looked up reflectively
+ * because the project still compiles for Java 8 and Java 8 runtimes before 8u262 have no jdk.jfr.
+ * There every call is a no-op and the phase only reaches the {@link MetricsRegistry}.
+ */
+class PhaseEvent {
+
+	private static final Object FACTORY;
+	private static final Method NEW_EVENT;
+	private static final Method BEGIN;
+	private static final Method END;
+	private static final Method SHOULD_COMMIT;
+	private static final Method SET;
+	private static final Method COMMIT;
+
+	static {
+		Object factory = null;
+		Method[] methods = new Method[6];
+		try {
+			factory = factory();
+			Class<?> event = Class.forName("jdk.jfr.Event");
+			methods[0] = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+			methods[1] = event.getMethod("begin");
+			methods[2] = event.getMethod("end");
+			methods[3] = event.getMethod("shouldCommit");
+			methods[4] = event.getMethod("set", int.class, Object.class);
+			methods[5] = event.getMethod("commit");
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			factory = null;
+		}
+		FACTORY = factory;
+		NEW_EVENT = methods[0];
+		BEGIN = methods[1];
+		END = methods[2];
+		SHOULD_COMMIT = methods[3];
+		SET = methods[4];
+		COMMIT = methods[5];
+	}
+
+	private final Object event;
+
+	PhaseEvent() {
+		this.event = FACTORY != null ? invoke(NEW_EVENT, FACTORY) : null;
+	}
+
+	static boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	void begin() {
+		if (event != null) {
+			invoke(BEGIN, event);
+		}
+	}
+
+	void end() {
+		if (event != null) {
+			invoke(END, event);
+		}
+	}
+
+	boolean shouldCommit() {
+		return event != null && (Boolean) invoke(SHOULD_COMMIT, event);
+	}
+
+	/**
+	 * Fills the fields in the order {@link #factory()} declares them and commits.
+	 */
+	void commit(String run, String phase, long allocatedBytes, long variables, long constraints, long nonZeros,
+			long iterations, String status) {
+
+		if (event == null) {
+			return;
+		}
+		Object[] values = { run, phase, allocatedBytes, variables, constraints, nonZeros, iterations, status };
+		for (int i = 0; i < values.length; i++) {
+			invoke(SET, event, i, values[i]);
+		}
+		invoke(COMMIT, event);
+	}
+
+	private static Object invoke(Method method, Object target, Object... arguments) {
+		try {
+			return method.invoke(target, arguments);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * EventFactory.create for an event named opt01.Phase, as the annotated class
+	 * "@Name("opt01.Phase") @Label("Optimization Phase") @Category("opt01") class PhaseEvent extends Event"
+	 * would declare it.
+	 */
+	private static Object factory() throws ReflectiveOperationException {
+
+		Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+		Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+		Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+		Constructor<?> field = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+		Class<?> label = Class.forName("jdk.jfr.Label");
+
+		List<Object> eventAnnotations = Arrays.asList(
+				annotation.newInstance(Class.forName("jdk.jfr.Name"), "opt01.Phase"),
+				annotation.newInstance(label, "Optimization Phase"),
+				annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "opt01" }),
+				annotation.newInstance(Class.forName("jdk.jfr.Description"),
+						"One phase of an investment optimization run"));
+
+		List<Object> fields = new ArrayList<Object>();
+		fields.add(field.newInstance(String.class, "run",
+				Collections.singletonList(annotation.newInstance(label, "Run"))));
+		fields.add(field.newInstance(String.class, "phase",
+				Collections.singletonList(annotation.newInstance(label, "Phase"))));
+		fields.add(field.newInstance(long.class, "allocatedBytes",
+				Arrays.asList(annotation.newInstance(label, "Allocated"),
+						annotation.newInstance(Class.forName("jdk.jfr.DataAmount"), "BYTES"))));
+		fields.add(field.newInstance(long.class, "variables",
+				Collections.singletonList(annotation.newInstance(label, "Variables"))));
+		fields.add(field.newInstance(long.class, "constraints",
+				Collections.singletonList(annotation.newInstance(label, "Constraints"))));
+		fields.add(field.newInstance(long.class, "nonZeros",
+				Collections.singletonList(annotation.newInstance(label, "Non-zeros"))));
+		fields.add(field.newInstance(long.class, "iterations",
+				Collections.singletonList(annotation.newInstance(label, "Solver Iterations"))));
+		fields.add(field.newInstance(String.class, "status",
+				Collections.singletonList(annotation.newInstance(label, "Result Status"))));
+
+		return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class).invoke(null,
+				eventAnnotations, fields);
+	}
+}
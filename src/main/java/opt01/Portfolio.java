@@ -0,0 +1,31 @@
+package opt01;
+
+import java.util.HashMap;
+
+/**
+ * Everything read from one workbook: account limits, needs and the investment catalogue.
+ */
+public class Portfolio {
+
+	HashMap<String, InvestmentLimits> limits;
+	NeedBook needs;
+	InvestmentBook investments;
+
+	public Portfolio(HashMap<String, InvestmentLimits> limits, NeedBook needs, InvestmentBook investments) {
+		this.limits = limits;
+		this.needs = needs;
+		this.investments = investments;
+	}
+
+	public HashMap<String, InvestmentLimits> getLimits() {
+		return limits;
+	}
+
+	public NeedBook getNeeds() {
+		return needs;
+	}
+
+	public InvestmentBook getInvestments() {
+		return investments;
+	}
+}
@@ -0,0 +1,111 @@
+package opt01;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Plain-text portfolio, one record per line, the three sheets of the workbook in one stream:
+ *
+ * <pre>
+ * # comment
+ * L,&lt;account&gt;,&lt;min&gt;,&lt;max&gt;
+ * I,&lt;account&gt;,&lt;term&gt;,&lt;rate&gt;
+ * N,&lt;name&gt;,&lt;amount&gt;,&lt;daysUntilDue&gt;
+ * </pre>
+ *
+ * Names can't contain commas. When the records carry no L or I lines, the limits and the
+ * investment catalogue of a reference portfolio are used, so a client only has to send its needs.
+ */
+public class PortfolioRecords {
+
+	static final char SEPARATOR = ',';
+
+	public static Portfolio parse(BufferedReader in, Portfolio reference) throws IOException {
+
+		HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+		InvestmentBook investments = new InvestmentBook();
+		NeedBook needs = new NeedBook();
+		String[] fields = new String[4];
+
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			if (split(line, fields) != 4) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": expected 4 fields in '" + line + "'");
+			}
+
+			try {
+				switch (fields[0]) {
+				case "L":
+					limits.put(fields[1],
+							new InvestmentLimits(fields[1], Double.parseDouble(fields[2]), Double.parseDouble(fields[3])));
+					break;
+				case "I":
+					investments.add(fields[1], Double.parseDouble(fields[3]), (long) Double.parseDouble(fields[2]));
+					break;
+				case "N":
+					needs.add(fields[1], Double.parseDouble(fields[2]), (long) Double.parseDouble(fields[3]));
+					break;
+				default:
+					throw new IllegalArgumentException("Line " + lineNumber + ": unknown record type " + fields[0]);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+		return assemble(limits, needs, investments, reference);
+	}
+
+	/**
+	 * Applies the limits to the accounts of the catalogue, falling back on the reference
+	 * portfolio as {@link #parse(BufferedReader, Portfolio)} describes.
+	 */
+	static Portfolio assemble(HashMap<String, InvestmentLimits> limits, NeedBook needs, InvestmentBook investments,
+			Portfolio reference) {
+
+		if (investments.size == 0 && limits.isEmpty()) {
+			if (reference == null) {
+				throw new IllegalArgumentException("No investments given and no reference catalogue");
+			}
+			return new Portfolio(reference.limits, needs, reference.investments);
+		}
+
+		if (reference != null) {
+			for (InvestmentLimits limit : reference.limits.values()) {
+				limits.putIfAbsent(limit.name, limit);
+			}
+		}
+		for (int account = 0; account < investments.accountCount; account++) {
+			InvestmentLimits limit = limits.get(investments.accountName[account]);
+			if (limit == null) {
+				throw new IllegalArgumentException("No limits found for account " + investments.accountName[account]);
+			}
+			investments.setAccountLimits(account, limit.minInvestment, limit.maxInvestment);
+		}
+		return new Portfolio(limits, needs, investments);
+	}
+
+	/**
+	 * Splits into at most fields.length trimmed fields, the last one taking the rest of the line.
+	 */
+	static int split(String line, String[] fields) {
+
+		int count = 0;
+		int start = 0;
+		while (count < fields.length - 1) {
+			int end = line.indexOf(SEPARATOR, start);
+			if (end < 0) {
+				break;
+			}
+			fields[count++] = line.substring(start, end).trim();
+			start = end + 1;
+		}
+		fields[count++] = line.substring(start).trim();
+		return count;
+	}
+}
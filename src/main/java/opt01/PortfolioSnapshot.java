@@ -0,0 +1,179 @@
+package opt01;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact binary form of a {@link Portfolio}. The header carries a key (the hash of the source
+ * workbook); the books follow column by column so they are read back with bulk copies out of
+ * a memory-mapped file.
+ *
+ * <pre>
+ * int magic, int version, int keyLength, byte[] key
+ * Limits:      int count, count x (string name, double min, double max)
+ * Needs:       int size, string[size] name, double[size] amount, long[size] daysUntilDue
+ * Investments: int accountCount, string[] accountName, double[] accountMin, double[] accountMax,
+ *              int size, int[size] accountId, double[size] rate, long[size] term
+ * </pre>
+ *
+ * Strings are an int byte length followed by UTF-8; everything is big-endian.
+ */
+public class PortfolioSnapshot {
+
+	static final int MAGIC = 0x4F505431;
+	static final int VERSION = 1;
+
+	public static void write(Portfolio portfolio, byte[] key, Path path) throws IOException {
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(key.length);
+			out.write(key);
+
+			out.writeInt(portfolio.limits.size());
+			for (InvestmentLimits limit : portfolio.limits.values()) {
+				writeString(out, limit.name);
+				out.writeDouble(limit.minInvestment);
+				out.writeDouble(limit.maxInvestment);
+			}
+
+			NeedBook needs = portfolio.needs;
+			out.writeInt(needs.size);
+			for (int c = 0; c < needs.size; c++) {
+				writeString(out, needs.name[c]);
+			}
+			for (int c = 0; c < needs.size; c++) {
+				out.writeDouble(needs.amount[c]);
+			}
+			for (int c = 0; c < needs.size; c++) {
+				out.writeLong(needs.daysUntilDue[c]);
+			}
+
+			InvestmentBook investments = portfolio.investments;
+			out.writeInt(investments.accountCount);
+			for (int account = 0; account < investments.accountCount; account++) {
+				writeString(out, investments.accountName[account]);
+			}
+			for (int account = 0; account < investments.accountCount; account++) {
+				out.writeDouble(investments.accountMin[account]);
+			}
+			for (int account = 0; account < investments.accountCount; account++) {
+				out.writeDouble(investments.accountMax[account]);
+			}
+			out.writeInt(investments.size);
+			for (int r = 0; r < investments.size; r++) {
+				out.writeInt(investments.accountId[r]);
+			}
+			for (int r = 0; r < investments.size; r++) {
+				out.writeDouble(investments.rate[r]);
+			}
+			for (int r = 0; r < investments.size; r++) {
+				out.writeLong(investments.term[r]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a snapshot back, or returns null when it was written by another format version or
+	 * under a different key. A null expectedKey accepts any key.
+	 */
+	public static Portfolio read(Path path, byte[] expectedKey) throws IOException {
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return null;
+			}
+			byte[] key = new byte[buffer.getInt()];
+			buffer.get(key);
+			if (expectedKey != null && !Arrays.equals(key, expectedKey)) {
+				return null;
+			}
+
+			HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+			int limitCount = buffer.getInt();
+			for (int i = 0; i < limitCount; i++) {
+				String name = readString(buffer);
+				limits.put(name, new InvestmentLimits(name, buffer.getDouble(), buffer.getDouble()));
+			}
+
+			int needCount = buffer.getInt();
+			String[] needName = readStrings(buffer, needCount);
+			double[] amount = readDoubles(buffer, needCount);
+			long[] daysUntilDue = readLongs(buffer, needCount);
+			NeedBook needs = NeedBook.wrap(needCount, needName, amount, daysUntilDue);
+
+			int accountCount = buffer.getInt();
+			String[] accountName = readStrings(buffer, accountCount);
+			double[] accountMin = readDoubles(buffer, accountCount);
+			double[] accountMax = readDoubles(buffer, accountCount);
+			int investmentCount = buffer.getInt();
+			int[] accountId = readInts(buffer, investmentCount);
+			double[] rate = readDoubles(buffer, investmentCount);
+			long[] term = readLongs(buffer, investmentCount);
+			InvestmentBook investments = InvestmentBook.wrap(investmentCount, accountId, rate, term, accountCount,
+					accountName, accountMin, accountMax);
+
+			return new Portfolio(limits, needs, investments);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String[] readStrings(ByteBuffer buffer, int count) {
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = readString(buffer);
+		}
+		return values;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+
+	private static double[] readDoubles(ByteBuffer buffer, int count) {
+		double[] values = new double[count];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+
+	private static long[] readLongs(ByteBuffer buffer, int count) {
+		long[] values = new long[count];
+		buffer.asLongBuffer().get(values);
+		buffer.position(buffer.position() + count * 8);
+		return values;
+	}
+}
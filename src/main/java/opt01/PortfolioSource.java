@@ -0,0 +1,44 @@
+package opt01;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Where a portfolio comes from. Every source produces the same limits, needs and investment
+ * books; {@link #forPath(Path)} picks one by file extension: .csv records, the columnar binary
+ * format (.portfolio, or a .snapshot kept next to a workbook) and anything else as a workbook.
+ */
+public interface PortfolioSource {
+
+	/**
+	 * The sample workbook the entry points read when no file is given.
+	 */
+	String DATA_FILE_PATH = Paths.get("src", "main", "resources", "data.xlsx").toString();
+	String CSV_SUFFIX = ".csv";
+	String BINARY_SUFFIX = ".portfolio";
+
+	PortfolioSource WORKBOOK = path -> SnapshotCache.load(path.toString());
+	PortfolioSource CSV = new CsvPortfolioSource();
+	PortfolioSource BINARY = new BinaryPortfolioSource();
+
+	Portfolio load(Path path) throws IOException;
+
+	static PortfolioSource forPath(Path path) {
+
+		String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(CSV_SUFFIX)) {
+			return CSV;
+		}
+		if (name.endsWith(BINARY_SUFFIX) || name.endsWith(SnapshotCache.SUFFIX)) {
+			return BINARY;
+		}
+		return WORKBOOK;
+	}
+
+	static Portfolio load(String path) throws IOException {
+		Path file = Paths.get(path);
+		return forPath(file).load(file);
+	}
+}
@@ -0,0 +1,215 @@
+package opt01;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Shrinks a portfolio before the model is built, keeping the optimal gain unchanged:
+ * <ul>
+ * <li>a product is dropped when another product of the same account has a term no longer and
+ * a rate at least as high. With an equal rate its cells are exact copies of the other
+ * product's; with a lower rate it is only dropped when the account maximum can't bind, because
+ * a binding maximum can make the cheaper product the only way to fund a need;</li>
+ * <li>needs due on the same day are eligible for the same products, so they are funded as
+ * one need of the summed amount and every original need gets the same shares. Needs that are
+ * identical apart from their name are the common case.</li>
+ * </ul>
+ * {@link #tightenBounds(LinearProgram)} then caps every cell at the share its account maximum
+ * allows. {@link #expand} maps an allocation of the reduced portfolio back to the original pairs.
+ */
+public class Presolve {
+
+	static final String PROPERTY = "opt01.presolve";
+	static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(PROPERTY, "true"));
+
+	final Portfolio original;
+	final Portfolio reduced;
+	// reduced row of each original row, -1 when dropped
+	final int[] reducedRow;
+	// reduced need funding each original need
+	final int[] reducedNeed;
+	int dominatedProducts;
+	int tightenedCells;
+	int fixedCells;
+
+	private Presolve(Portfolio original, Portfolio reduced, int[] reducedRow, int[] reducedNeed) {
+		this.original = original;
+		this.reduced = reduced;
+		this.reducedRow = reducedRow;
+		this.reducedNeed = reducedNeed;
+	}
+
+	public static Presolve run(Portfolio portfolio) {
+
+		InvestmentBook investments = portfolio.investments;
+		NeedBook needs = portfolio.needs;
+
+		boolean[] dominated = dominatedProducts(investments, needs);
+		InvestmentBook keptInvestments = new InvestmentBook();
+		for (int account = 0; account < investments.accountCount; account++) {
+			keptInvestments.accountIdOf(investments.accountName[account]);
+			keptInvestments.setAccountLimits(account, investments.accountMin[account], investments.accountMax[account]);
+		}
+		int[] reducedRow = new int[investments.size];
+		int dropped = 0;
+		for (int r = 0; r < investments.size; r++) {
+			if (dominated[r]) {
+				reducedRow[r] = -1;
+				dropped++;
+			} else {
+				reducedRow[r] = keptInvestments.add(investments.accountName[investments.accountId[r]],
+						investments.rate[r], investments.term[r]);
+			}
+		}
+
+		NeedBook mergedNeeds = new NeedBook();
+		HashMap<Long, Integer> byDueDate = new HashMap<Long, Integer>();
+		int[] reducedNeed = new int[needs.size];
+		for (int c = 0; c < needs.size; c++) {
+			Integer merged = byDueDate.get(needs.daysUntilDue[c]);
+			if (merged == null) {
+				merged = mergedNeeds.add(needs.name[c], needs.amount[c], needs.daysUntilDue[c]);
+				byDueDate.put(needs.daysUntilDue[c], merged);
+			} else {
+				mergedNeeds.amount[merged] += needs.amount[c];
+			}
+			reducedNeed[c] = merged;
+		}
+
+		Presolve presolve = new Presolve(portfolio, new Portfolio(portfolio.limits, mergedNeeds, keptInvestments),
+				reducedRow, reducedNeed);
+		presolve.dominatedProducts = dropped;
+		return presolve;
+	}
+
+	/**
+	 * Products of an account sorted by term, then rate descending: a product is dominated by
+	 * any product before it with a higher rate (when the account can't reach its maximum) or the
+	 * same rate.
+	 */
+	static boolean[] dominatedProducts(InvestmentBook investments, NeedBook needs) {
+
+		boolean[] slack = slackAccounts(investments, needs);
+
+		Integer[] order = new Integer[investments.size];
+		for (int r = 0; r < order.length; r++) {
+			order[r] = r;
+		}
+		Arrays.sort(order, (a, b) -> {
+			int compare = Integer.compare(investments.accountId[a], investments.accountId[b]);
+			if (compare == 0) {
+				compare = Long.compare(investments.term[a], investments.term[b]);
+			}
+			if (compare == 0) {
+				compare = Double.compare(investments.rate[b], investments.rate[a]);
+			}
+			return compare != 0 ? compare : Integer.compare(a, b);
+		});
+
+		boolean[] dominated = new boolean[investments.size];
+		HashSet<Double> ratesSeen = new HashSet<Double>();
+		double best = Double.NEGATIVE_INFINITY;
+		int account = -1;
+		for (int r : order) {
+			if (investments.accountId[r] != account) {
+				account = investments.accountId[r];
+				ratesSeen.clear();
+				best = Double.NEGATIVE_INFINITY;
+			}
+			double rate = investments.rate[r];
+			dominated[r] = ratesSeen.contains(rate) || (slack[account] && best >= rate);
+			ratesSeen.add(rate);
+			best = Math.max(best, rate);
+		}
+		return dominated;
+	}
+
+	/**
+	 * Accounts whose maximum is at least the gain they would make funding every need they can
+	 * at their best rate, so the maximum never binds.
+	 */
+	static boolean[] slackAccounts(InvestmentBook investments, NeedBook needs) {
+
+		long[] shortestTerm = new long[investments.accountCount];
+		double[] bestRate = new double[investments.accountCount];
+		Arrays.fill(shortestTerm, Long.MAX_VALUE);
+		Arrays.fill(bestRate, Double.NEGATIVE_INFINITY);
+		for (int r = 0; r < investments.size; r++) {
+			int account = investments.accountId[r];
+			shortestTerm[account] = Math.min(shortestTerm[account], investments.term[r]);
+			bestRate[account] = Math.max(bestRate[account], investments.rate[r]);
+		}
+
+		boolean[] slack = new boolean[investments.accountCount];
+		for (int account = 0; account < slack.length; account++) {
+			double reachable = 0;
+			for (int c = 0; c < needs.size; c++) {
+				if (needs.daysUntilDue[c] >= shortestTerm[account]) {
+					reachable += GainsEngine.gainInOneYear(needs.amount[c], bestRate[account] / GainsEngine.DAYS_IN_YEAR);
+				}
+			}
+			slack[account] = investments.accountMax[account] >= reachable;
+		}
+		return slack;
+	}
+
+	/**
+	 * Caps each cell at the share that fits in its account maximum: gain x share can't exceed it.
+	 * A cell whose account has no room at all is fixed at 0.
+	 */
+	public void tightenBounds(LinearProgram lp) {
+
+		for (int k = 0; k < lp.numVariables; k++) {
+			double gain = lp.value[2 * k];
+			double limit = lp.rowUpper[lp.rowIndex[2 * k]];
+			if (gain > 0 && gain * lp.upper[k] > limit) {
+				lp.upper[k] = Math.max(0, limit / gain);
+				if (lp.upper[k] == 0) {
+					fixedCells++;
+				} else {
+					tightenedCells++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allocation over the original pairs: a dropped product gets nothing and every need gets the
+	 * shares of the merged need it belongs to.
+	 */
+	public double[] expand(EligiblePairs reducedPairs, double[] reducedAllocation, EligiblePairs pairs) {
+
+		double[] allocation = new double[pairs.nonZeros()];
+		double[] shares = new double[reducedPairs.columns];
+		for (int r = 0; r < pairs.rows; r++) {
+			int row = reducedRow[r];
+			if (row < 0) {
+				continue;
+			}
+			for (int k = reducedPairs.rowStart[row]; k < reducedPairs.rowStart[row + 1]; k++) {
+				shares[reducedPairs.column[k]] = reducedAllocation[k];
+			}
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				allocation[k] = shares[reducedNeed[pairs.column[k]]];
+			}
+			for (int k = reducedPairs.rowStart[row]; k < reducedPairs.rowStart[row + 1]; k++) {
+				shares[reducedPairs.column[k]] = 0;
+			}
+		}
+		return allocation;
+	}
+
+	public Portfolio getReduced() {
+		return reduced;
+	}
+
+	@Override
+	public String toString() {
+		return "Presolve: products [" + original.investments.size + " -> " + reduced.investments.size + "] " +
+			   "needs [" + original.needs.size + " -> " + reduced.needs.size + "] " +
+			   "dominated [" + dominatedProducts + "] " +
+			   "tightened cells [" + tightenedCells + "] " +
+			   "fixed cells [" + fixedCells + "]";
+	}
+}
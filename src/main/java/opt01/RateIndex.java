@@ -0,0 +1,121 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Best rate available per account at or below a given term. Each interned account owns a
+ * segment of term-sorted arrays with a running maximum of the rate, so a lookup is one
+ * binary search instead of a scan over the whole catalogue. Like the scan it replaces, only
+ * positive rates count: a term where the account pays nothing or less has best rate 0 and no row.
+ */
+public class RateIndex {
+
+	final InvestmentBook investments;
+	final int accountCount;
+	final int[] accountStart;
+	final long[] term;
+	final double[] bestRate;
+	final int[] bestRow;
+
+	private RateIndex(InvestmentBook investments, int accountCount, int[] accountStart, long[] term, double[] bestRate,
+			int[] bestRow) {
+		this.investments = investments;
+		this.accountCount = accountCount;
+		this.accountStart = accountStart;
+		this.term = term;
+		this.bestRate = bestRate;
+		this.bestRow = bestRow;
+	}
+
+	public static RateIndex build(InvestmentBook investments) {
+
+		int accounts = investments.accountCount;
+		int rows = investments.size;
+
+		int[] accountStart = new int[accounts + 1];
+		for (int r = 0; r < rows; r++) {
+			accountStart[investments.accountId[r] + 1]++;
+		}
+		for (int a = 0; a < accounts; a++) {
+			accountStart[a + 1] += accountStart[a];
+		}
+
+		// term in the high bits, row in the low bits, so sorting a segment orders it by term
+		long[] keys = new long[rows];
+		int[] next = Arrays.copyOf(accountStart, accounts);
+		for (int r = 0; r < rows; r++) {
+			keys[next[investments.accountId[r]]++] = (investments.term[r] << 32) | r;
+		}
+
+		long[] term = new long[rows];
+		double[] bestRate = new double[rows];
+		int[] bestRow = new int[rows];
+		for (int a = 0; a < accounts; a++) {
+			Arrays.sort(keys, accountStart[a], accountStart[a + 1]);
+
+			double best = 0;
+			int row = -1;
+			for (int k = accountStart[a]; k < accountStart[a + 1]; k++) {
+				int r = (int) keys[k];
+				if (investments.rate[r] > best) {
+					best = investments.rate[r];
+					row = r;
+				}
+				term[k] = investments.term[r];
+				bestRate[k] = best;
+				bestRow[k] = row;
+			}
+		}
+
+		return new RateIndex(investments, accounts, accountStart, term, bestRate, bestRow);
+	}
+
+	public static RateIndex build(Investment[] investments) {
+
+		InvestmentBook book = new InvestmentBook();
+		for (Investment investment : investments) {
+			book.add(investment.getAccountName(), investment.getInterestRate(), investment.getTerm());
+		}
+		return build(book);
+	}
+
+	/**
+	 * Highest rate the account offers for a term at or below the given one, 0 when it has none.
+	 */
+	public double bestRate(int account, long maxTerm) {
+		int k = lastAtOrBelow(account, maxTerm);
+		return k >= 0 ? bestRate[k] : 0;
+	}
+
+	public double bestRate(String accountName, long maxTerm) {
+		int account = investments.findAccount(accountName);
+		return account >= 0 ? bestRate(account, maxTerm) : 0;
+	}
+
+	/**
+	 * Investment row offering {@link #bestRate(int, long)}, -1 when that rate is 0.
+	 */
+	public int bestRow(int account, long maxTerm) {
+		int k = lastAtOrBelow(account, maxTerm);
+		return k >= 0 ? bestRow[k] : -1;
+	}
+
+	public int accountCount() {
+		return accountCount;
+	}
+
+	private int lastAtOrBelow(int account, long maxTerm) {
+
+		int low = accountStart[account];
+		int high = accountStart[account + 1];
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (term[middle] <= maxTerm) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low > accountStart[account] ? low - 1 : -1;
+	}
+}
@@ -0,0 +1,206 @@
+package opt01;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes an allocation as CSV or as an XLSX streamed through SXSSF, only ever holding a small
+ * window of rows in memory. Only non-zero allocations are written:
+ * <ul>
+ * <li>wide: one row per investment that received anything, one gain column per need, as printSolution did;</li>
+ * <li>long: one row per non-zero (investment, need) cell with its share, funded amount and gain.</li>
+ * </ul>
+ */
+public class ResultWriter {
+
+	static final double ZERO = 1e-9;
+	static final int ROW_WINDOW = 100;
+	static final String RESULT_SHEET = "Allocation";
+	static final String[] LONG_HEADER = { "Account", "Term", "Need", "Share", "Amount", "Gain" };
+
+	private final InvestmentBook investments;
+	private final NeedBook needs;
+	private final EligiblePairs pairs;
+	private final double[] allocation;
+
+	public ResultWriter(InvestmentBook investments, NeedBook needs, EligiblePairs pairs, double[] allocation) {
+		this.investments = investments;
+		this.needs = needs;
+		this.pairs = pairs;
+		this.allocation = allocation;
+	}
+
+	public static ResultWriter of(Portfolio portfolio, OptimizationResult result) {
+		return new ResultWriter(portfolio.investments, portfolio.needs, result.getPairs(), result.getAllocation());
+	}
+
+	/**
+	 * Picks CSV or XLSX from the file extension.
+	 */
+	public void write(Path path, boolean longFormat) throws IOException {
+
+		if (path.getFileName().toString().toLowerCase().endsWith(".xlsx")) {
+			writeXlsx(path, longFormat);
+		} else {
+			writeCsv(path, longFormat);
+		}
+	}
+
+	public void writeCsv(Path path, boolean longFormat) throws IOException {
+
+		BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		try {
+			writeDelimited(out, ',', longFormat);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Delimited text to any writer; the caller owns, and flushes, the writer.
+	 */
+	public void writeDelimited(Writer out, char separator, boolean longFormat) throws IOException {
+
+		if (longFormat) {
+			for (int i = 0; i < LONG_HEADER.length; i++) {
+				if (i > 0) {
+					out.write(separator);
+				}
+				out.write(LONG_HEADER[i]);
+			}
+			out.write('\n');
+
+			for (int r = 0; r < pairs.rows; r++) {
+				for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+					if (Math.abs(allocation[k]) > ZERO) {
+						int c = pairs.column[k];
+						out.write(quote(investments.getAccountName(r), separator));
+						out.write(separator);
+						out.write(Long.toString(investments.term[r]));
+						out.write(separator);
+						out.write(quote(needs.name[c], separator));
+						out.write(separator);
+						out.write(Double.toString(allocation[k]));
+						out.write(separator);
+						out.write(Double.toString(allocation[k] * needs.amount[c]));
+						out.write(separator);
+						out.write(Double.toString(allocation[k] * pairs.gain[k]));
+						out.write('\n');
+					}
+				}
+			}
+			return;
+		}
+
+		out.write("Investment");
+		for (int c = 0; c < needs.size; c++) {
+			out.write(separator);
+			out.write(quote(needs.name[c], separator));
+		}
+		out.write('\n');
+
+		double[] rowGains = new double[needs.size];
+		for (int r = 0; r < pairs.rows; r++) {
+			if (fillRow(r, rowGains)) {
+				out.write(quote(investments.getAccountName(r) + "_" + investments.term[r], separator));
+				for (int c = 0; c < needs.size; c++) {
+					out.write(separator);
+					out.write(Double.toString(rowGains[c]));
+				}
+				out.write('\n');
+			}
+		}
+	}
+
+	public void writeXlsx(Path path, boolean longFormat) throws IOException {
+
+		SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+		try {
+			Sheet sheet = workbook.createSheet(RESULT_SHEET);
+			int rowNum = 0;
+
+			if (longFormat) {
+				Row header = sheet.createRow(rowNum++);
+				for (int i = 0; i < LONG_HEADER.length; i++) {
+					header.createCell(i).setCellValue(LONG_HEADER[i]);
+				}
+				for (int r = 0; r < pairs.rows; r++) {
+					for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+						if (Math.abs(allocation[k]) > ZERO) {
+							int c = pairs.column[k];
+							Row row = sheet.createRow(rowNum++);
+							row.createCell(0).setCellValue(investments.getAccountName(r));
+							row.createCell(1).setCellValue(investments.term[r]);
+							row.createCell(2).setCellValue(needs.name[c]);
+							row.createCell(3).setCellValue(allocation[k]);
+							row.createCell(4).setCellValue(allocation[k] * needs.amount[c]);
+							row.createCell(5).setCellValue(allocation[k] * pairs.gain[k]);
+						}
+					}
+				}
+			} else {
+				Row header = sheet.createRow(rowNum++);
+				header.createCell(0).setCellValue("Investment");
+				for (int c = 0; c < needs.size; c++) {
+					header.createCell(c + 1).setCellValue(needs.name[c]);
+				}
+				double[] rowGains = new double[needs.size];
+				for (int r = 0; r < pairs.rows; r++) {
+					if (fillRow(r, rowGains)) {
+						Row row = sheet.createRow(rowNum++);
+						row.createCell(0).setCellValue(investments.getAccountName(r) + "_" + investments.term[r]);
+						for (int c = 0; c < needs.size; c++) {
+							if (rowGains[c] != 0) {
+								row.createCell(c + 1).setCellValue(rowGains[c]);
+							}
+						}
+					}
+				}
+			}
+
+			OutputStream out = Files.newOutputStream(path);
+			try {
+				workbook.write(out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			workbook.dispose();
+			workbook.close();
+		}
+	}
+
+	/**
+	 * Gains of investment r per need, returning whether any of them is non-zero.
+	 */
+	private boolean fillRow(int r, double[] rowGains) {
+
+		boolean any = false;
+		Arrays.fill(rowGains, 0);
+		for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+			if (Math.abs(allocation[k]) > ZERO) {
+				rowGains[pairs.column[k]] = allocation[k] * pairs.gain[k];
+				any = true;
+			}
+		}
+		return any;
+	}
+
+	private static String quote(String value, char separator) {
+
+		if (value.indexOf(separator) < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -0,0 +1,73 @@
+package opt01;
+
+/**
+ * Outcome of one {@link RolloverSimulator} run: what each need was paid, interest earned and
+ * what is left at the horizon.
+ */
+public class RolloverResult {
+
+	final long horizon;
+	final double[] paid;
+	final double[] shortfall;
+	double interestEarned;
+	double accruedInterest;
+	double finalCash;
+	double openPrincipal;
+	int maturities;
+	int reinvestments;
+
+	RolloverResult(long horizon, int needs) {
+		this.horizon = horizon;
+		this.paid = new double[needs];
+		this.shortfall = new double[needs];
+	}
+
+	public long getHorizon() {
+		return horizon;
+	}
+
+	public double getPaid(int need) {
+		return paid[need];
+	}
+
+	public double getShortfall(int need) {
+		return shortfall[need];
+	}
+
+	public double getTotalShortfall() {
+		double total = 0;
+		for (double missing : shortfall) {
+			total += missing;
+		}
+		return total;
+	}
+
+	public double getInterestEarned() {
+		return interestEarned;
+	}
+
+	/**
+	 * Cash plus open lots and their interest accrued up to the horizon.
+	 */
+	public double getEndValue() {
+		return finalCash + openPrincipal + accruedInterest;
+	}
+
+	public int getMaturities() {
+		return maturities;
+	}
+
+	public int getReinvestments() {
+		return reinvestments;
+	}
+
+	@Override
+	public String toString() {
+		return "Horizon: [" + horizon + " days] " +
+			   "Interest: [" + interestEarned + "] " +
+			   "End value: [" + getEndValue() + "] " +
+			   "Shortfall: [" + getTotalShortfall() + "] " +
+			   "Maturities: [" + maturities + "] " +
+			   "Reinvestments: [" + reinvestments + "]";
+	}
+}
@@ -0,0 +1,317 @@
+package opt01;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Event-driven multi-period simulation of a portfolio. Open investments ("lots") sit in a
+ * primitive min-heap ordered by maturity day. The clock jumps from one maturity or due date to
+ * the next: matured lots pay principal plus simple interest, needs due that day are paid from
+ * cash, and the remaining cash is reinvested.
+ *
+ * Reinvestment is greedy. Cash is set aside for the upcoming needs in due order, beyond what open
+ * lots already cover, then the rest goes to the horizon. Each tranche's window (days until it is
+ * needed) is rounded down to the term ladder, and it goes to the best rate any account offers for
+ * a term within that rung, up to the account's maximum.
+ *
+ * A simulator keeps its heap between runs, so simulating one portfolio repeatedly allocates
+ * nothing but the result.
+ */
+public class RolloverSimulator {
+
+	static final double EPSILON = 1e-9;
+	static final int DAYS_IN_YEAR = OptimizeInvestments.DAYS_IN_YEAR;
+	static final int INITIAL_CAPACITY = 64;
+
+	private final InvestmentBook investments;
+	private final NeedBook needs;
+	private final RateIndex rates;
+	private final long[] ladder;
+	private final int[] needOrder;
+
+	// heap of open lots, all fields swapped together
+	private int lots;
+	private long[] maturity = new long[INITIAL_CAPACITY];
+	private long[] start = new long[INITIAL_CAPACITY];
+	private double[] principal = new double[INITIAL_CAPACITY];
+	private int[] product = new int[INITIAL_CAPACITY];
+
+	private final double[] accountBalance;
+	private double openPrincipal;
+	private double cash;
+	private int nextNeed;
+	private RolloverResult result;
+
+	public RolloverSimulator(Portfolio portfolio, RateIndex rates, long[] ladder) {
+
+		this.investments = portfolio.investments;
+		this.needs = portfolio.needs;
+		this.rates = rates;
+		this.ladder = ladder.clone();
+		Arrays.sort(this.ladder);
+		this.accountBalance = new double[investments.accountCount];
+
+		long[] keys = new long[needs.size];
+		for (int c = 0; c < needs.size; c++) {
+			keys[c] = (needs.daysUntilDue[c] << 32) | c;
+		}
+		Arrays.sort(keys);
+		needOrder = new int[needs.size];
+		for (int i = 0; i < needs.size; i++) {
+			needOrder[i] = (int) keys[i];
+		}
+	}
+
+	public RolloverSimulator(Portfolio portfolio, long[] ladder) {
+		this(portfolio, RateIndex.build(portfolio.investments), ladder);
+	}
+
+	/**
+	 * Starts from cash only, invested on day 0.
+	 */
+	public RolloverResult simulate(double initialCash, long horizon) {
+		reset(horizon);
+		cash = initialCash;
+		return run(horizon);
+	}
+
+	/**
+	 * Starts from an optimized allocation: every pair becomes a lot of share x need amount in its
+	 * investment row, opened on day 0.
+	 */
+	public RolloverResult simulate(EligiblePairs pairs, double[] allocation, long horizon) {
+
+		reset(horizon);
+		for (int r = 0; r < pairs.rows; r++) {
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				double amount = allocation[k] * needs.amount[pairs.column[k]];
+				if (amount > EPSILON) {
+					open(r, amount, 0);
+				}
+			}
+		}
+		return run(horizon);
+	}
+
+	/**
+	 * Simulates many portfolios in parallel with one simulator each.
+	 */
+	public static RolloverResult[] simulateAll(Portfolio[] portfolios, double[] initialCash, long horizon,
+			long[] ladder) {
+
+		RolloverResult[] results = new RolloverResult[portfolios.length];
+		IntStream.range(0, portfolios.length).parallel().forEach(
+				i -> results[i] = new RolloverSimulator(portfolios[i], ladder).simulate(initialCash[i], horizon));
+		return results;
+	}
+
+	private void reset(long horizon) {
+
+		lots = 0;
+		openPrincipal = 0;
+		cash = 0;
+		nextNeed = 0;
+		Arrays.fill(accountBalance, 0);
+		result = new RolloverResult(horizon, needs.size);
+	}
+
+	private RolloverResult run(long horizon) {
+
+		long day = 0;
+		payNeeds(day);
+		reinvest(day);
+
+		while (true) {
+			long nextMaturity = lots > 0 ? maturity[0] : Long.MAX_VALUE;
+			long nextDue = nextNeed < needs.size ? needs.daysUntilDue[needOrder[nextNeed]] : Long.MAX_VALUE;
+			day = Math.min(nextMaturity, nextDue);
+			if (day > horizon) {
+				break;
+			}
+
+			while (lots > 0 && maturity[0] == day) {
+				mature();
+			}
+			payNeeds(day);
+			reinvest(day);
+		}
+
+		result.finalCash = cash;
+		result.openPrincipal = openPrincipal;
+		for (int i = 0; i < lots; i++) {
+			double rate = investments.rate[product[i]];
+			result.accruedInterest += principal[i] * rate * (horizon - start[i]) / DAYS_IN_YEAR;
+		}
+		return result;
+	}
+
+	private void payNeeds(long day) {
+
+		while (nextNeed < needs.size && needs.daysUntilDue[needOrder[nextNeed]] <= day) {
+			int c = needOrder[nextNeed++];
+			double paid = Math.min(cash, needs.amount[c]);
+			cash -= paid;
+			result.paid[c] = paid;
+			result.shortfall[c] = needs.amount[c] - paid;
+		}
+	}
+
+	private void reinvest(long day) {
+
+		if (cash <= EPSILON) {
+			return;
+		}
+
+		// open lots are assumed to fund the earliest needs first
+		double covered = openPrincipal;
+		double idle = 0;
+		for (int i = nextNeed; i < needs.size && cash > EPSILON; i++) {
+			int c = needOrder[i];
+			double uncovered = needs.amount[c] - covered;
+			covered = Math.max(0, covered - needs.amount[c]);
+			if (uncovered <= EPSILON) {
+				continue;
+			}
+			double tranche = Math.min(cash, uncovered);
+			cash -= tranche;
+			idle += invest(tranche, day, needs.daysUntilDue[c] - day);
+		}
+		if (cash > EPSILON) {
+			double tranche = cash;
+			cash = 0;
+			idle += invest(tranche, day, result.horizon - day);
+		}
+		cash += idle;
+	}
+
+	/**
+	 * Places the amount within the window and returns what could not be placed.
+	 */
+	private double invest(double amount, long day, long window) {
+
+		long rung = rung(window);
+		while (rung > 0 && amount > EPSILON) {
+			int bestAccount = -1;
+			double bestRate = 0;
+			for (int account = 0; account < rates.accountCount; account++) {
+				if (investments.accountMax[account] - accountBalance[account] > EPSILON) {
+					double rate = rates.bestRate(account, rung);
+					if (rate > bestRate) {
+						bestRate = rate;
+						bestAccount = account;
+					}
+				}
+			}
+			if (bestAccount < 0) {
+				break;
+			}
+
+			double placed = Math.min(amount, investments.accountMax[bestAccount] - accountBalance[bestAccount]);
+			open(rates.bestRow(bestAccount, rung), placed, day);
+			result.reinvestments++;
+			amount -= placed;
+		}
+		return amount;
+	}
+
+	/**
+	 * Largest ladder term that fits in the window, 0 when none does.
+	 */
+	private long rung(long window) {
+
+		int index = Arrays.binarySearch(ladder, window);
+		if (index < 0) {
+			index = -index - 2;
+		}
+		return index >= 0 ? ladder[index] : 0;
+	}
+
+	private void open(int row, double amount, long day) {
+
+		if (lots == maturity.length) {
+			int capacity = lots * 2;
+			maturity = Arrays.copyOf(maturity, capacity);
+			start = Arrays.copyOf(start, capacity);
+			principal = Arrays.copyOf(principal, capacity);
+			product = Arrays.copyOf(product, capacity);
+		}
+
+		int i = lots++;
+		maturity[i] = day + Math.max(1, investments.term[row]);
+		start[i] = day;
+		principal[i] = amount;
+		product[i] = row;
+		siftUp(i);
+
+		accountBalance[investments.accountId[row]] += amount;
+		openPrincipal += amount;
+	}
+
+	private void mature() {
+
+		int row = product[0];
+		double amount = principal[0];
+		double interest = amount * investments.rate[row] * (maturity[0] - start[0]) / DAYS_IN_YEAR;
+
+		cash += amount + interest;
+		accountBalance[investments.accountId[row]] -= amount;
+		openPrincipal -= amount;
+		result.interestEarned += interest;
+		result.maturities++;
+
+		lots--;
+		if (lots > 0) {
+			move(lots, 0);
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (maturity[parent] <= maturity[i]) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= lots) {
+				return;
+			}
+			if (child + 1 < lots && maturity[child + 1] < maturity[child]) {
+				child++;
+			}
+			if (maturity[i] <= maturity[child]) {
+				return;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void move(int from, int to) {
+		maturity[to] = maturity[from];
+		start[to] = start[from];
+		principal[to] = principal[from];
+		product[to] = product[from];
+	}
+
+	private void swap(int a, int b) {
+
+		long maturityA = maturity[a];
+		long startA = start[a];
+		double principalA = principal[a];
+		int productA = product[a];
+
+		move(b, a);
+		maturity[b] = maturityA;
+		start[b] = startA;
+		principal[b] = principalA;
+		product[b] = productA;
+	}
+}
@@ -0,0 +1,144 @@
+package opt01;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times the phases of one optimization run. Every phase commits a {@link PhaseEvent} to JFR
+ * when the runtime has it, and records its duration and allocated bytes in the
+ * {@link MetricsRegistry}; model size, solver iterations and result status are reported the
+ * same way. {@link #summary()} gives the whole run on one line.
+ *
+ * Allocated bytes are those of the calling thread, so work handed to a pool (Monte Carlo
+ * scenarios) only counts what the caller allocated itself.
+ */
+public class RunInstrumentation {
+
+	static final String METRIC_PREFIX = "opt01.";
+
+	private static volatile MetricsRegistry registry = new InMemoryMetricsRegistry();
+
+	private final String run;
+	private final long start = System.nanoTime();
+	private final LinkedHashMap<String, long[]> phases = new LinkedHashMap<String, long[]>();
+	private long variables;
+	private long constraints;
+	private long nonZeros;
+	private long iterations;
+	private String status;
+
+	public RunInstrumentation(String run) {
+		this.run = run;
+	}
+
+	public static MetricsRegistry getRegistry() {
+		return registry;
+	}
+
+	public static void setRegistry(MetricsRegistry metricsRegistry) {
+		registry = metricsRegistry;
+	}
+
+	public Phase phase(String name) {
+		return new Phase(name);
+	}
+
+	/**
+	 * Runs work as one timed phase.
+	 */
+	public <E extends Exception> void time(String name, Work<E> work) throws E {
+
+		Phase phase = phase(name);
+		try {
+			work.run();
+		} finally {
+			phase.close();
+		}
+	}
+
+	/**
+	 * The body of a phase, allowed to throw what the caller would.
+	 */
+	public interface Work<E extends Exception> {
+
+		void run() throws E;
+	}
+
+	public void modelSize(long variables, long constraints, long nonZeros) {
+
+		this.variables = variables;
+		this.constraints = constraints;
+		this.nonZeros = nonZeros;
+
+		registry.record(METRIC_PREFIX + "model.variables", variables);
+		registry.record(METRIC_PREFIX + "model.constraints", constraints);
+		registry.record(METRIC_PREFIX + "model.nonZeros", nonZeros);
+	}
+
+	public void solverResult(long iterations, Object status) {
+
+		this.iterations = iterations;
+		this.status = String.valueOf(status);
+
+		registry.record(METRIC_PREFIX + "solver.iterations", iterations);
+		registry.increment(METRIC_PREFIX + "solver.status." + this.status, 1);
+	}
+
+	public String summary() {
+
+		StringBuilder line = new StringBuilder("Run: [").append(run).append("]");
+		for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+			line.append(' ').append(phase.getKey()).append("=").append(phase.getValue()[0] / 1_000_000).append("ms/")
+					.append(phase.getValue()[1] / 1024).append("KB");
+		}
+		line.append(" Model: [").append(variables).append(" vars, ").append(constraints).append(" cons, ")
+				.append(nonZeros).append(" nz]");
+		if (status != null) {
+			line.append(" Status: [").append(status).append("] Iterations: [").append(iterations).append("]");
+		}
+		line.append(" Total: [").append((System.nanoTime() - start) / 1_000_000).append(" ms]");
+		return line.toString();
+	}
+
+	static long allocatedBytes() {
+
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 * One timed phase, meant for try-with-resources.
+	 */
+	public class Phase implements AutoCloseable {
+
+		private final String name;
+		private final PhaseEvent event = new PhaseEvent();
+		private final long allocatedAtStart = allocatedBytes();
+		private final long phaseStart = System.nanoTime();
+
+		Phase(String name) {
+			this.name = name;
+			event.begin();
+		}
+
+		@Override
+		public void close() {
+
+			long nanos = System.nanoTime() - phaseStart;
+			long allocated = Math.max(0, allocatedBytes() - allocatedAtStart);
+			phases.put(name, new long[] { nanos, allocated });
+
+			registry.record(METRIC_PREFIX + "phase." + name + ".nanos", nanos);
+			registry.record(METRIC_PREFIX + "phase." + name + ".allocatedBytes", allocated);
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.commit(run, name, allocated, variables, constraints, nonZeros, iterations, status);
+			}
+		}
+	}
+}
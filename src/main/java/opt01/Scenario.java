@@ -0,0 +1,241 @@
+package opt01;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A what-if over a shared base portfolio: only the changed product rates, account limits and need
+ * amounts are stored, and every read falls through to the base books, which are never written.
+ * A variant costs memory in proportion to its changes, not to the catalogue.
+ *
+ * To solve, {@link #applyTo(LinearProgram)} patches just the rows and cells the changes touch in a
+ * working program built from the base, and {@link #restore(LinearProgram)} puts them back, so one
+ * working program per thread serves any number of scenarios.
+ */
+public class Scenario {
+
+	final String name;
+	final Portfolio base;
+	private final HashMap<Integer, Double> rates = new HashMap<Integer, Double>();
+	private final HashMap<Integer, double[]> limits = new HashMap<Integer, double[]>();
+	private final HashMap<Integer, Double> needAmounts = new HashMap<Integer, Double>();
+
+	public Scenario(String name, Portfolio base) {
+		this.name = name;
+		this.base = base;
+	}
+
+	/**
+	 * Another scenario with the same changes, to be varied further.
+	 */
+	public Scenario copy(String copyName) {
+
+		Scenario copy = new Scenario(copyName, base);
+		copy.rates.putAll(rates);
+		for (Map.Entry<Integer, double[]> limit : limits.entrySet()) {
+			copy.limits.put(limit.getKey(), limit.getValue().clone());
+		}
+		copy.needAmounts.putAll(needAmounts);
+		return copy;
+	}
+
+	public Scenario setRate(int row, double rate) {
+		rates.put(row, rate);
+		return this;
+	}
+
+	public Scenario setRate(String accountName, long term, double rate) {
+		return setRate(ParametricSweep.row(base.investments, accountName, term), rate);
+	}
+
+	public Scenario setAccountLimits(String accountName, double min, double max) {
+
+		int account = base.investments.findAccount(accountName);
+		if (account < 0) {
+			throw new IllegalArgumentException("Unknown account " + accountName);
+		}
+		limits.put(account, new double[] { min, max });
+		return this;
+	}
+
+	public Scenario setNeedAmount(int need, double amount) {
+		needAmounts.put(need, amount);
+		return this;
+	}
+
+	public Scenario setNeedAmount(String needName, double amount) {
+
+		NeedBook needs = base.needs;
+		for (int c = 0; c < needs.size; c++) {
+			if (needs.name[c].equals(needName)) {
+				return setNeedAmount(c, amount);
+			}
+		}
+		throw new IllegalArgumentException("Unknown need " + needName);
+	}
+
+	public double rate(int row) {
+		Double rate = rates.get(row);
+		return rate != null ? rate : base.investments.rate[row];
+	}
+
+	public double accountMin(int account) {
+		double[] limit = limits.get(account);
+		return limit != null ? limit[0] : base.investments.accountMin[account];
+	}
+
+	public double accountMax(int account) {
+		double[] limit = limits.get(account);
+		return limit != null ? limit[1] : base.investments.accountMax[account];
+	}
+
+	public double needAmount(int need) {
+		Double amount = needAmounts.get(need);
+		return amount != null ? amount : base.needs.amount[need];
+	}
+
+	/**
+	 * One product as seen by this scenario; only the row asked for is materialized.
+	 */
+	public Investment investment(int row) {
+		int account = base.investments.accountId[row];
+		return new Investment(base.investments.accountName[account], rate(row), base.investments.term[row],
+				accountMin(account), accountMax(account));
+	}
+
+	public Need need(int column) {
+		return new Need(base.needs.name[column], base.needs.daysUntilDue[column], needAmount(column));
+	}
+
+	public int changes() {
+		return rates.size() + limits.size() + needAmounts.size();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Writes the changes into a program built by {@link LinearProgram#forAllocation} from the base books.
+	 */
+	public void applyTo(LinearProgram lp) {
+		write(lp, true);
+	}
+
+	/**
+	 * Puts back the base values of everything {@link #applyTo(LinearProgram)} touched.
+	 */
+	public void restore(LinearProgram lp) {
+		write(lp, false);
+	}
+
+	private void write(LinearProgram lp, boolean overlay) {
+
+		EligiblePairs pairs = lp.pairs;
+		pairs.indexColumns();
+
+		for (int account : limits.keySet()) {
+			int row = lp.accountRow[account];
+			if (row < 0) {
+				continue;
+			}
+			lp.rowLower[row] = overlay ? accountMin(account) : base.investments.accountMin[account];
+			lp.rowUpper[row] = overlay ? accountMax(account) : base.investments.accountMax[account];
+		}
+		for (int r : rates.keySet()) {
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				setGain(lp, k, gain(overlay, r, pairs.column[k]));
+			}
+		}
+		for (int c : needAmounts.keySet()) {
+			double amount = overlay ? needAmount(c) : base.needs.amount[c];
+			lp.rowLower[lp.accountRows + c] = amount;
+			lp.rowUpper[lp.accountRows + c] = amount;
+			for (int i = pairs.columnStart[c]; i < pairs.columnStart[c + 1]; i++) {
+				int k = pairs.columnPair[i];
+				lp.value[2 * k + 1] = amount;
+				setGain(lp, k, gain(overlay, pairs.row[k], c));
+			}
+		}
+	}
+
+	private double gain(boolean overlay, int row, int column) {
+		double amount = overlay ? needAmount(column) : base.needs.amount[column];
+		double rate = overlay ? rate(row) : base.investments.rate[row];
+		return GainsEngine.gainInOneYear(amount, rate / GainsEngine.DAYS_IN_YEAR);
+	}
+
+	private static void setGain(LinearProgram lp, int k, double gain) {
+		lp.objective[k] = gain;
+		lp.value[2 * k] = gain;
+	}
+
+	/**
+	 * Solves every scenario of one base portfolio. Each worker owns one working program and takes
+	 * scenarios in turn, applying, solving from the base solution's basis and restoring.
+	 */
+	public static List<OptimizationResult> solveAll(Portfolio base, List<Scenario> scenarios, LpSolver solver,
+			int parallelism) {
+
+		EligiblePairs pairs = EligiblePairs.build(base.investments, base.needs);
+		pairs.indexColumns();
+		LinearProgram program = LinearProgram.forAllocation(base.investments, base.needs, pairs);
+		LpSolution reference = solver.solve(program);
+
+		int workers = Math.max(1, Math.min(parallelism, scenarios.size()));
+		OptimizationResult[] results = new OptimizationResult[scenarios.size()];
+		List<Callable<Void>> work = new ArrayList<Callable<Void>>(workers);
+		for (int w = 0; w < workers; w++) {
+			int worker = w;
+			work.add(() -> {
+				LinearProgram lp = program.copy();
+				for (int s = worker; s < results.length; s += workers) {
+					Scenario scenario = scenarios.get(s);
+					if (scenario.base != base) {
+						throw new IllegalArgumentException("Scenario " + scenario.name + " has another base portfolio");
+					}
+					long start = System.nanoTime();
+					scenario.applyTo(lp);
+					try {
+						LpSolution solution = solver.solve(lp, reference);
+						double[] allocation = solution.values != null ? solution.values : new double[lp.numVariables];
+						results[s] = new OptimizationResult(scenario.name, solution.status, solution.objectiveValue,
+								pairs, allocation, System.nanoTime() - start);
+						results[s].engine = solution.engine;
+					} finally {
+						scenario.restore(lp);
+					}
+				}
+				return null;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		try {
+			for (Future<Void> future : pool.invokeAll(work)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Scenario run interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Scenario failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		return Arrays.asList(results);
+	}
+
+	@Override
+	public String toString() {
+		return "Scenario: [" + name + "] Changes: [" + changes() + "]";
+	}
+}
@@ -0,0 +1,102 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Duals of the account limit and need rows, and reduced costs of the allocation cells, of a
+ * solved {@link LinearProgram#forAllocation allocation program}. All in the sense of the
+ * maximized gain: an account dual is the gain one more unit of its limit would bring, a need
+ * dual the gain per unit of need amount, and a cell left at zero has a reduced cost of minus
+ * the gain it lacks before it would be used.
+ */
+public class SensitivityReport {
+
+	static final int CLOSEST_CELLS = 10;
+	static final double ZERO = 1e-9;
+
+	private final LinearProgram lp;
+	private final LpSolution solution;
+
+	public SensitivityReport(LinearProgram lp, LpSolution solution) {
+
+		if (solution.duals == null || solution.reducedCosts == null) {
+			throw new IllegalArgumentException("The " + solution.engine + " backend reports no duals");
+		}
+		this.lp = lp;
+		this.solution = solution;
+	}
+
+	public double accountDual(int account) {
+		int row = lp.accountRow[account];
+		return row >= 0 ? solution.duals[row] : 0;
+	}
+
+	public double needDual(int need) {
+		return solution.duals[lp.accountRows + need];
+	}
+
+	public double reducedCost(int pair) {
+		return solution.reducedCosts[pair];
+	}
+
+	/**
+	 * How much the gain of an unused cell has to rise before the allocation would use it; 0 for
+	 * cells already in use.
+	 */
+	public double missingGain(int pair) {
+		return solution.values[pair] > ZERO ? 0 : Math.max(0, -solution.reducedCosts[pair]);
+	}
+
+	@Override
+	public String toString() {
+
+		InvestmentBook investments = lp.investments;
+		NeedBook needs = lp.needs;
+		EligiblePairs pairs = lp.pairs;
+		StringBuilder text = new StringBuilder("Account limit duals:");
+		for (int account = 0; account < investments.accountCount; account++) {
+			if (lp.accountRow[account] >= 0) {
+				text.append("\n  ").append(investments.accountName[account]).append(": [")
+						.append(accountDual(account)).append("]");
+			}
+		}
+		text.append("\nNeed duals:");
+		for (int c = 0; c < needs.size; c++) {
+			text.append("\n  ").append(needs.name[c]).append(": [").append(needDual(c)).append("]");
+		}
+
+		// unused cells closest to entering: smallest missing gain first, pair index in the low bits
+		long[] closest = new long[pairs.nonZeros()];
+		int count = 0;
+		for (int k = 0; k < closest.length; k++) {
+			if (solution.values[k] <= ZERO) {
+				closest[count++] = ((long) Float.floatToIntBits((float) missingGain(k)) << 32) | k;
+			}
+		}
+		Arrays.sort(closest, 0, count);
+		text.append("\nUnused cells closest to entering:");
+		for (int i = 0; i < Math.min(CLOSEST_CELLS, count); i++) {
+			int k = (int) closest[i];
+			int r = rowOf(pairs, k);
+			text.append("\n  ").append(investments.getAccountName(r)).append(" ").append(investments.term[r])
+					.append(" days -> ").append(needs.name[pairs.column[k]]).append(": missing gain [")
+					.append(missingGain(k)).append("]");
+		}
+		return text.toString();
+	}
+
+	private static int rowOf(EligiblePairs pairs, int pair) {
+
+		int low = 0;
+		int high = pairs.rows - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (pairs.rowStart[middle] <= pair) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,651 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-variable revised simplex in plain Java, so small models solve without loading the
+ * OR-Tools native library. Every row a.x in [lo, up] becomes a.x - s = 0 with a bounded slack s;
+ * phase one drives artificial variables to zero, phase two optimizes the real objective.
+ * The basis inverse is kept dense, which suits models with up to a few thousand rows.
+ * Given the solution of a program with the same shape, a solve starts from its basis and skips
+ * phase one while that basis is still primal feasible.
+ * Every phase two iterate is feasible and no worse than the one before, so a solve that hits the
+ * {@link SolverConfig} time limit there returns it as TIME_LIMIT, and the incumbent listener
+ * hears about it every RECOMPUTE_INTERVAL pivots.
+ */
+public class SimplexLpSolver implements LpSolver {
+
+	static final double PRIMAL_TOLERANCE = 1e-9;
+	static final double DUAL_TOLERANCE = 1e-9;
+	static final double PIVOT_TOLERANCE = 1e-11;
+	static final int RECOMPUTE_INTERVAL = 50;
+	static final int DEGENERATE_PIVOTS_BEFORE_BLAND = 50;
+	static final long DEFAULT_MAX_ITERATIONS = 1_000_000;
+	static final int PIVOTS_PER_CLOCK_CHECK = 16;
+
+	private final long maxIterations;
+	private final SolverConfig config;
+
+	public SimplexLpSolver() {
+		this(DEFAULT_MAX_ITERATIONS);
+	}
+
+	public SimplexLpSolver(long maxIterations) {
+		this(maxIterations, SolverConfig.DEFAULT);
+	}
+
+	public SimplexLpSolver(long maxIterations, SolverConfig config) {
+		this.maxIterations = maxIterations;
+		this.config = config;
+	}
+
+	@Override
+	public String name() {
+		return JAVA_BACKEND;
+	}
+
+	@Override
+	public SolverConfig config() {
+		return config;
+	}
+
+	@Override
+	public LpSolution solve(LinearProgram lp) {
+		return new Simplex(lp, maxIterations, config).solve();
+	}
+
+	@Override
+	public LpSolution solve(LinearProgram lp, LpSolution previous) {
+
+		Basis basis = previous != null ? previous.basis : null;
+		if (basis != null && basis.head.length == lp.numConstraints
+				&& basis.state.length == lp.numVariables + 2 * lp.numConstraints) {
+			Simplex warm = new Simplex(lp, maxIterations, config);
+			if (warm.start(basis)) {
+				return warm.phaseTwo();
+			}
+		}
+		return solve(lp);
+	}
+
+	/**
+	 * Final basis of a solve: the column of each basis row and whether every column is basic or
+	 * at a bound. Read only, so one basis can seed several solves.
+	 */
+	static class Basis {
+
+		final int[] head;
+		final byte[] state;
+
+		Basis(int[] head, byte[] state) {
+			this.head = head;
+			this.state = state;
+		}
+	}
+
+	/**
+	 * State of one solve. Columns are the structural variables, then one slack and one
+	 * artificial per row.
+	 */
+	private static class Simplex {
+
+		static final byte BASIC = 0;
+		static final byte AT_LOWER = 1;
+		static final byte AT_UPPER = 2;
+		static final byte FREE = 3;
+
+		static final int OPTIMAL = 0;
+		static final int UNBOUNDED = 1;
+		static final int ITERATION_LIMIT = 2;
+		static final int TIME_LIMIT = 3;
+
+		final LinearProgram lp;
+		final long maxIterations;
+		final long startNanos;
+		final long budgetNanos;
+		final SolverConfig.IncumbentListener listener;
+		final int n;
+		final int m;
+		final int columns;
+
+		final double[] lower;
+		final double[] upper;
+		final double[] cost;
+		final double[] x;
+		final byte[] state;
+		final double[] artificialSign;
+
+		final int[] head;
+		final double[][] inverse;
+		final double[] y;
+		final double[] alpha;
+
+		long iterations;
+		int degeneratePivots;
+		boolean feasible;
+
+		Simplex(LinearProgram lp, long maxIterations, SolverConfig config) {
+
+			this.lp = lp;
+			this.maxIterations = maxIterations;
+			this.startNanos = System.nanoTime();
+			this.budgetNanos = config.budgetNanos();
+			this.listener = config.listener;
+			this.n = lp.numVariables;
+			this.m = lp.numConstraints;
+			this.columns = n + 2 * m;
+
+			lower = new double[columns];
+			upper = new double[columns];
+			cost = new double[columns];
+			x = new double[columns];
+			state = new byte[columns];
+			artificialSign = new double[m];
+			head = new int[m];
+			inverse = new double[m][m];
+			y = new double[m];
+			alpha = new double[m];
+		}
+
+		LpSolution solve() {
+
+			for (int j = 0; j < n; j++) {
+				if (lp.lower[j] > lp.upper[j]) {
+					return result(SolveStatus.INFEASIBLE);
+				}
+			}
+			for (int i = 0; i < m; i++) {
+				if (lp.rowLower[i] > lp.rowUpper[i]) {
+					return result(SolveStatus.INFEASIBLE);
+				}
+			}
+
+			start();
+
+			// Phase one: minimize the sum of the artificial variables
+			for (int i = 0; i < m; i++) {
+				cost[n + m + i] = upper[n + m + i] > 0 ? 1 : 0;
+			}
+			int outcome = iterate();
+			if (outcome == ITERATION_LIMIT || outcome == TIME_LIMIT) {
+				return result(SolveStatus.NOT_SOLVED);
+			}
+
+			// Each row against its own tightest bound: a huge limit on one row mustn't hide a short one
+			for (int i = 0; i < m; i++) {
+				if (x[n + m + i] > 1e-7 * Math.max(1, rowScale(i))) {
+					return result(SolveStatus.INFEASIBLE);
+				}
+			}
+
+			return phaseTwo();
+		}
+
+		/**
+		 * Artificials are fixed at zero and the real objective takes over.
+		 */
+		LpSolution phaseTwo() {
+
+			for (int i = 0; i < m; i++) {
+				int a = n + m + i;
+				upper[a] = 0;
+				cost[a] = 0;
+				if (state[a] != BASIC) {
+					x[a] = 0;
+					state[a] = AT_LOWER;
+				}
+			}
+			for (int j = 0; j < n; j++) {
+				cost[j] = lp.maximize ? -lp.objective[j] : lp.objective[j];
+			}
+			degeneratePivots = 0;
+			feasible = true;
+
+			int outcome = iterate();
+			if (outcome == UNBOUNDED) {
+				return result(SolveStatus.UNBOUNDED);
+			}
+			if (outcome == TIME_LIMIT) {
+				return result(SolveStatus.TIME_LIMIT);
+			}
+			return result(outcome == OPTIMAL ? SolveStatus.OPTIMAL : SolveStatus.FEASIBLE);
+		}
+
+		/**
+		 * Structural variables start at a finite bound. A row whose activity already fits its bounds
+		 * gets its slack in the basis, otherwise the slack sits at the violated bound and an
+		 * artificial variable absorbs the difference.
+		 */
+		void start() {
+
+			for (int j = 0; j < n; j++) {
+				lower[j] = lp.lower[j];
+				upper[j] = lp.upper[j];
+				if (!Double.isInfinite(lower[j])) {
+					x[j] = lower[j];
+					state[j] = AT_LOWER;
+				} else if (!Double.isInfinite(upper[j])) {
+					x[j] = upper[j];
+					state[j] = AT_UPPER;
+				} else {
+					state[j] = FREE;
+				}
+			}
+
+			double[] activity = new double[m];
+			for (int j = 0; j < n; j++) {
+				if (x[j] != 0) {
+					for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+						activity[lp.rowIndex[k]] += lp.value[k] * x[j];
+					}
+				}
+			}
+
+			for (int i = 0; i < m; i++) {
+				int s = n + i;
+				int a = n + m + i;
+				lower[s] = lp.rowLower[i];
+				upper[s] = lp.rowUpper[i];
+
+				if (activity[i] >= lower[s] && activity[i] <= upper[s]) {
+					x[s] = activity[i];
+					state[s] = BASIC;
+					head[i] = s;
+					inverse[i][i] = -1;
+
+					artificialSign[i] = 1;
+					state[a] = AT_LOWER;
+				} else {
+					boolean belowLower = activity[i] < lower[s];
+					x[s] = belowLower ? lower[s] : upper[s];
+					state[s] = belowLower ? AT_LOWER : AT_UPPER;
+
+					double residual = x[s] - activity[i];
+					artificialSign[i] = residual >= 0 ? 1 : -1;
+					upper[a] = Double.POSITIVE_INFINITY;
+					x[a] = Math.abs(residual);
+					state[a] = BASIC;
+					head[i] = a;
+					inverse[i][i] = artificialSign[i];
+				}
+			}
+		}
+
+		/**
+		 * Starts from a previous basis: nonbasic columns at their bounds, the basis matrix inverted
+		 * from scratch. False when it is singular or no longer primal feasible for this program.
+		 */
+		boolean start(Basis basis) {
+
+			for (int j = 0; j < n; j++) {
+				lower[j] = lp.lower[j];
+				upper[j] = lp.upper[j];
+				if (lower[j] > upper[j]) {
+					return false;
+				}
+			}
+			for (int i = 0; i < m; i++) {
+				lower[n + i] = lp.rowLower[i];
+				upper[n + i] = lp.rowUpper[i];
+				artificialSign[i] = 1;
+				if (lower[n + i] > upper[n + i]) {
+					return false;
+				}
+			}
+			for (int j = 0; j < columns; j++) {
+				state[j] = basis.state[j];
+				if (state[j] == AT_LOWER) {
+					x[j] = lower[j];
+				} else if (state[j] == AT_UPPER) {
+					x[j] = upper[j];
+				} else {
+					x[j] = 0;
+				}
+				if (Double.isInfinite(x[j])) {
+					return false;
+				}
+			}
+			System.arraycopy(basis.head, 0, head, 0, m);
+
+			if (!invert()) {
+				return false;
+			}
+			recomputeBasicValues();
+			for (int i = 0; i < m; i++) {
+				int j = head[i];
+				double tolerance = PRIMAL_TOLERANCE * Math.max(1, Math.abs(x[j]));
+				if (x[j] < lower[j] - tolerance || x[j] > upper[j] + tolerance) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** inverse = B^-1 by Gauss-Jordan elimination with partial pivoting */
+		boolean invert() {
+
+			double[][] b = new double[m][m];
+			for (int i = 0; i < m; i++) {
+				column(head[i], b, i);
+			}
+			for (int i = 0; i < m; i++) {
+				Arrays.fill(inverse[i], 0);
+				inverse[i][i] = 1;
+			}
+
+			for (int p = 0; p < m; p++) {
+				int pivotRow = p;
+				for (int r = p + 1; r < m; r++) {
+					if (Math.abs(b[r][p]) > Math.abs(b[pivotRow][p])) {
+						pivotRow = r;
+					}
+				}
+				if (Math.abs(b[pivotRow][p]) <= PIVOT_TOLERANCE) {
+					return false;
+				}
+				double[] swap = b[p];
+				b[p] = b[pivotRow];
+				b[pivotRow] = swap;
+				swap = inverse[p];
+				inverse[p] = inverse[pivotRow];
+				inverse[pivotRow] = swap;
+
+				double a = b[p][p];
+				for (int c = 0; c < m; c++) {
+					b[p][c] /= a;
+					inverse[p][c] /= a;
+				}
+				for (int r = 0; r < m; r++) {
+					double f = b[r][p];
+					if (r == p || f == 0) {
+						continue;
+					}
+					for (int c = 0; c < m; c++) {
+						b[r][c] -= f * b[p][c];
+						inverse[r][c] -= f * inverse[p][c];
+					}
+				}
+			}
+			return true;
+		}
+
+		/** Writes column j of [A -I diag(artificialSign)] into column position i of b */
+		void column(int j, double[][] b, int i) {
+
+			if (j < n) {
+				for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+					b[lp.rowIndex[k]][i] = lp.value[k];
+				}
+			} else if (j < n + m) {
+				b[j - n][i] = -1;
+			} else {
+				b[j - n - m][i] = artificialSign[j - n - m];
+			}
+		}
+
+		int iterate() {
+
+			while (true) {
+				if (iterations >= maxIterations) {
+					return ITERATION_LIMIT;
+				}
+				if (iterations % PIVOTS_PER_CLOCK_CHECK == 0 && System.nanoTime() - startNanos > budgetNanos) {
+					return TIME_LIMIT;
+				}
+				if (iterations % RECOMPUTE_INTERVAL == 0) {
+					recomputeBasicValues();
+					if (feasible && listener != null && iterations > 0) {
+						listener.incumbent(objectiveValue(), iterations, System.nanoTime() - startNanos);
+					}
+				}
+				computeDuals();
+
+				// Pricing: Dantzig's rule, Bland's rule after a run of degenerate pivots
+				boolean bland = degeneratePivots >= DEGENERATE_PIVOTS_BEFORE_BLAND;
+				int entering = -1;
+				int direction = 0;
+				double best = 0;
+				for (int j = 0; j < columns; j++) {
+					byte s = state[j];
+					if (s == BASIC || lower[j] == upper[j]) {
+						continue;
+					}
+					double d = cost[j] - price(j);
+					int dir = 0;
+					if (d < -DUAL_TOLERANCE && (s == AT_LOWER || s == FREE)) {
+						dir = 1;
+					} else if (d > DUAL_TOLERANCE && (s == AT_UPPER || s == FREE)) {
+						dir = -1;
+					}
+					if (dir != 0 && (bland ? entering < 0 : Math.abs(d) > best)) {
+						entering = j;
+						direction = dir;
+						best = Math.abs(d);
+						if (bland) {
+							break;
+						}
+					}
+				}
+				if (entering < 0) {
+					return OPTIMAL;
+				}
+
+				column(entering, alpha);
+
+				// Ratio test: the smallest step that drives a basic variable to one of its bounds
+				double minLimit = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < m; i++) {
+					double limit = limit(i, direction);
+					if (limit < minLimit) {
+						minLimit = limit;
+					}
+				}
+
+				double flip = upper[entering] - lower[entering];
+				int leaving = -1;
+				double step;
+				if (flip <= minLimit) {
+					step = flip;
+				} else {
+					step = minLimit;
+					double bestPivot = 0;
+					for (int i = 0; i < m; i++) {
+						if (limit(i, direction) <= minLimit + PRIMAL_TOLERANCE) {
+							double pivot = Math.abs(alpha[i]);
+							if (bland ? leaving < 0 || head[i] < head[leaving] : pivot > bestPivot) {
+								leaving = i;
+								bestPivot = pivot;
+							}
+						}
+					}
+				}
+				if (Double.isInfinite(step)) {
+					return UNBOUNDED;
+				}
+
+				x[entering] += direction * step;
+				for (int i = 0; i < m; i++) {
+					x[head[i]] -= direction * step * alpha[i];
+				}
+
+				if (leaving < 0) {
+					state[entering] = direction > 0 ? AT_UPPER : AT_LOWER;
+					x[entering] = direction > 0 ? upper[entering] : lower[entering];
+				} else {
+					int out = head[leaving];
+					boolean toUpper = -direction * alpha[leaving] > 0;
+					state[out] = toUpper ? AT_UPPER : AT_LOWER;
+					x[out] = toUpper ? upper[out] : lower[out];
+
+					head[leaving] = entering;
+					state[entering] = BASIC;
+					pivot(leaving);
+				}
+
+				degeneratePivots = step <= PRIMAL_TOLERANCE ? degeneratePivots + 1 : 0;
+				iterations++;
+			}
+		}
+
+		double limit(int i, int direction) {
+
+			double a = alpha[i];
+			if (Math.abs(a) <= PIVOT_TOLERANCE) {
+				return Double.POSITIVE_INFINITY;
+			}
+			int j = head[i];
+			double rate = -direction * a;
+			double limit;
+			if (rate < 0) {
+				limit = (x[j] - lower[j]) / -rate;
+			} else {
+				limit = (upper[j] - x[j]) / rate;
+			}
+			return limit > 0 ? limit : 0;
+		}
+
+		/** y = c_B B^-1 */
+		void computeDuals() {
+
+			Arrays.fill(y, 0);
+			for (int i = 0; i < m; i++) {
+				double c = cost[head[i]];
+				if (c != 0) {
+					double[] row = inverse[i];
+					for (int r = 0; r < m; r++) {
+						y[r] += c * row[r];
+					}
+				}
+			}
+		}
+
+		/** y . A_j */
+		double price(int j) {
+
+			if (j < n) {
+				double sum = 0;
+				for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+					sum += y[lp.rowIndex[k]] * lp.value[k];
+				}
+				return sum;
+			}
+			if (j < n + m) {
+				return -y[j - n];
+			}
+			return artificialSign[j - n - m] * y[j - n - m];
+		}
+
+		/** out = B^-1 A_j */
+		void column(int j, double[] out) {
+
+			Arrays.fill(out, 0);
+			if (j < n) {
+				for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+					int r = lp.rowIndex[k];
+					double v = lp.value[k];
+					for (int i = 0; i < m; i++) {
+						out[i] += inverse[i][r] * v;
+					}
+				}
+			} else {
+				int r = j < n + m ? j - n : j - n - m;
+				double v = j < n + m ? -1 : artificialSign[r];
+				for (int i = 0; i < m; i++) {
+					out[i] = inverse[i][r] * v;
+				}
+			}
+		}
+
+		void pivot(int p) {
+
+			double[] pivotRow = inverse[p];
+			double a = alpha[p];
+			for (int r = 0; r < m; r++) {
+				pivotRow[r] /= a;
+			}
+			for (int i = 0; i < m; i++) {
+				double f = alpha[i];
+				if (i == p || f == 0) {
+					continue;
+				}
+				double[] row = inverse[i];
+				for (int r = 0; r < m; r++) {
+					row[r] -= f * pivotRow[r];
+				}
+			}
+		}
+
+		/** x_B = -B^-1 N x_N, to keep rounding from drifting the basic values away from the bounds */
+		void recomputeBasicValues() {
+
+			double[] residual = new double[m];
+			for (int j = 0; j < columns; j++) {
+				if (state[j] == BASIC || x[j] == 0) {
+					continue;
+				}
+				if (j < n) {
+					for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+						residual[lp.rowIndex[k]] += lp.value[k] * x[j];
+					}
+				} else if (j < n + m) {
+					residual[j - n] -= x[j];
+				} else {
+					residual[j - n - m] += artificialSign[j - n - m] * x[j];
+				}
+			}
+			for (int i = 0; i < m; i++) {
+				double sum = 0;
+				double[] row = inverse[i];
+				for (int r = 0; r < m; r++) {
+					sum += row[r] * residual[r];
+				}
+				x[head[i]] = -sum;
+			}
+		}
+
+		LpSolution result(SolveStatus status) {
+
+			if (!status.hasSolution()) {
+				return new LpSolution(status, 0, null, null, null, iterations, JAVA_BACKEND);
+			}
+
+			recomputeBasicValues();
+			computeDuals();
+
+			double sign = lp.maximize ? -1 : 1;
+			double[] values = Arrays.copyOf(x, n);
+			double[] reducedCosts = new double[n];
+			for (int j = 0; j < n; j++) {
+				reducedCosts[j] = sign * (cost[j] - price(j));
+			}
+			double objectiveValue = objectiveValue();
+			double[] duals = new double[m];
+			for (int i = 0; i < m; i++) {
+				duals[i] = sign * y[i];
+			}
+
+			LpSolution solution = new LpSolution(status, objectiveValue, values, duals, reducedCosts, iterations,
+					JAVA_BACKEND);
+			solution.basis = new Basis(head.clone(), state.clone());
+			return solution;
+		}
+
+		double objectiveValue() {
+			double value = 0;
+			for (int j = 0; j < n; j++) {
+				value += lp.objective[j] * x[j];
+			}
+			return value;
+		}
+
+		double rowScale(int i) {
+			double lower = finiteAbs(lp.rowLower[i]);
+			double upper = finiteAbs(lp.rowUpper[i]);
+			return lower == 0 || upper == 0 ? Math.max(lower, upper) : Math.min(lower, upper);
+		}
+
+		static double finiteAbs(double value) {
+			return Double.isInfinite(value) ? 0 : Math.abs(value);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package opt01;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Loads a workbook through a {@link PortfolioSnapshot} kept next to it (data.xlsx.snapshot).
+ * The snapshot is keyed by the SHA-256 of the workbook, so it is only used while the workbook
+ * is unchanged; otherwise the workbook is parsed again and the snapshot rewritten.
+ * -Dopt01.snapshot=false always parses the workbook.
+ */
+public class SnapshotCache {
+
+	static final String ENABLED_PROPERTY = "opt01.snapshot";
+	static final String SUFFIX = ".snapshot";
+	static final String HASH_ALGORITHM = "SHA-256";
+	static final long HASH_CHUNK = 1 << 26;
+
+	public static Portfolio load(String workbookPath) throws IOException {
+
+		if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+			return StreamingWorkbookLoader.load(workbookPath);
+		}
+
+		Path workbook = Paths.get(workbookPath);
+		Path snapshot = snapshotPath(workbook);
+		byte[] hash = hash(workbook);
+
+		if (Files.isRegularFile(snapshot)) {
+			try {
+				Portfolio portfolio = PortfolioSnapshot.read(snapshot, hash);
+				if (portfolio != null) {
+					return portfolio;
+				}
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Ignoring unreadable snapshot " + snapshot + ": " + e);
+			}
+		}
+
+		Portfolio portfolio = StreamingWorkbookLoader.load(workbookPath);
+		store(portfolio, hash, snapshot);
+		return portfolio;
+	}
+
+	static Path snapshotPath(Path workbook) {
+		return workbook.resolveSibling(workbook.getFileName() + SUFFIX);
+	}
+
+	/**
+	 * Writes to a temporary file first so a concurrent reader never sees half a snapshot. A
+	 * snapshot that can't be written only costs the next run a parse.
+	 */
+	static void store(Portfolio portfolio, byte[] hash, Path snapshot) {
+
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(),
+					".tmp");
+			PortfolioSnapshot.write(portfolio, hash, temporary);
+			Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Unable to write snapshot " + snapshot + ": " + e);
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	static byte[] hash(Path file) throws IOException {
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			for (long position = 0; position < size; position += HASH_CHUNK) {
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(HASH_CHUNK, size - position)));
+			}
+		} finally {
+			channel.close();
+		}
+		return digest.digest();
+	}
+}
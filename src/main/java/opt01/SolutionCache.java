@@ -0,0 +1,382 @@
+package opt01;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers solved problems so an exact repeat is answered without building or solving the model.
+ *
+ * The key is a SHA-256 over the normalized problem: investments (account, term, rate and account
+ * limits) and needs, each sorted, plus the {@link #solverSettings solver settings}. Row order
+ * doesn't matter, so the allocation is stored in canonical pair order and mapped back to the
+ * order of each request.
+ *
+ * An in-memory LRU tier is bounded by entries and a time to live. An optional directory tier
+ * (-Dopt01.cache.dir) keeps entries across restarts under the same time to live, counted from
+ * when the file was written.
+ */
+public class SolutionCache {
+
+	static final String ENTRIES_PROPERTY = "opt01.cache.entries";
+	static final String TTL_PROPERTY = "opt01.cache.ttlSeconds";
+	static final String DIRECTORY_PROPERTY = "opt01.cache.dir";
+	static final int DEFAULT_ENTRIES = 1024;
+	static final long DEFAULT_TTL_SECONDS = 3600;
+	static final int FILE_VERSION = 1;
+
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final Path directory;
+	private final LinkedHashMap<String, CachedSolution> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	public SolutionCache(int maxEntries, long ttlSeconds, Path directory) {
+
+		this.maxEntries = Math.max(1, maxEntries);
+		this.ttlNanos = ttlSeconds * 1_000_000_000L;
+		this.directory = directory;
+		this.entries = new LinkedHashMap<String, CachedSolution>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedSolution> eldest) {
+				if (size() > SolutionCache.this.maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public static SolutionCache fromProperties() {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		return new SolutionCache(Integer.getInteger(ENTRIES_PROPERTY, DEFAULT_ENTRIES),
+				Long.getLong(TTL_PROPERTY, DEFAULT_TTL_SECONDS), directory != null ? Paths.get(directory) : null);
+	}
+
+	/**
+	 * Cached result for the problem, with the allocation in the request's own pair order, or null.
+	 */
+	public OptimizationResult lookup(String name, Fingerprint fingerprint, EligiblePairs pairs, long startNanos) {
+
+		CachedSolution entry;
+		synchronized (entries) {
+			entry = entries.get(fingerprint.key);
+			if (entry != null && System.nanoTime() - entry.createdNanos > ttlNanos) {
+				entries.remove(fingerprint.key);
+				entry = null;
+			}
+		}
+
+		if (entry == null && directory != null) {
+			entry = readFile(fingerprint.key);
+			if (entry != null) {
+				diskHits.incrementAndGet();
+				synchronized (entries) {
+					entries.put(fingerprint.key, entry);
+				}
+			}
+		}
+
+		if (entry == null || entry.allocation.length != fingerprint.canonicalPair.length) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+
+		double[] allocation = new double[entry.allocation.length];
+		for (int k = 0; k < allocation.length; k++) {
+			allocation[k] = entry.allocation[fingerprint.canonicalPair[k]];
+		}
+		OptimizationResult result = new OptimizationResult(name, entry.status, entry.objectiveValue, pairs, allocation,
+				System.nanoTime() - startNanos);
+		result.engine = entry.engine;
+		return result;
+	}
+
+	/**
+	 * Keeps results that only depend on the problem; FEASIBLE and failed runs depend on time limits and luck.
+	 */
+	public void store(Fingerprint fingerprint, OptimizationResult result) {
+
+		SolveStatus status = result.status;
+		if (status != SolveStatus.OPTIMAL && status != SolveStatus.INFEASIBLE && status != SolveStatus.UNBOUNDED) {
+			return;
+		}
+
+		double[] canonical = new double[fingerprint.canonicalPair.length];
+		if (result.allocation != null) {
+			for (int k = 0; k < canonical.length; k++) {
+				canonical[fingerprint.canonicalPair[k]] = result.allocation[k];
+			}
+		}
+		CachedSolution entry = new CachedSolution(status, result.objectiveValue, result.engine, canonical,
+				System.nanoTime());
+		synchronized (entries) {
+			entries.put(fingerprint.key, entry);
+		}
+		if (directory != null) {
+			writeFile(fingerprint.key, entry);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Hits: [" + hits.get() + "] " +
+			   "Disk hits: [" + diskHits.get() + "] " +
+			   "Misses: [" + misses.get() + "] " +
+			   "Evictions: [" + evictions.get() + "] " +
+			   "Entries: [" + size() + "]";
+	}
+
+	/**
+	 * What besides the problem decides a solution: the backend, its time limit, gap and threads,
+	 * and whether the model was presolved.
+	 */
+	public static String solverSettings(LpSolver solver, boolean presolve) {
+		return solver.name() + " " + solver.config() + " Presolve: [" + presolve + "]";
+	}
+
+	/**
+	 * Canonical key of a problem, and where each of its pairs sits in canonical order.
+	 */
+	public static Fingerprint fingerprint(Portfolio portfolio, EligiblePairs pairs, String solverSettings) {
+
+		InvestmentBook investments = portfolio.investments;
+		NeedBook needs = portfolio.needs;
+
+		Integer[] rows = new Integer[investments.size];
+		for (int r = 0; r < rows.length; r++) {
+			rows[r] = r;
+		}
+		Arrays.sort(rows, Comparator.<Integer, String>comparing(investments::getAccountName)
+				.thenComparingLong(r -> investments.term[r])
+				.thenComparingDouble(r -> investments.rate[r])
+				.thenComparingDouble(investments::getMinInvestmentAmount)
+				.thenComparingDouble(investments::getMaxInvestmentAmount));
+
+		Integer[] columns = new Integer[needs.size];
+		for (int c = 0; c < columns.length; c++) {
+			columns[c] = c;
+		}
+		Arrays.sort(columns, Comparator.<Integer, String>comparing(c -> needs.name[c])
+				.thenComparingDouble(c -> needs.amount[c])
+				.thenComparingLong(c -> needs.daysUntilDue[c]));
+
+		MessageDigest digest = sha256();
+		update(digest, solverSettings);
+		update(digest, investments.size);
+		for (int r : rows) {
+			update(digest, investments.getAccountName(r));
+			update(digest, investments.term[r]);
+			update(digest, investments.rate[r]);
+			update(digest, investments.getMinInvestmentAmount(r));
+			update(digest, investments.getMaxInvestmentAmount(r));
+		}
+		update(digest, needs.size);
+		for (int c : columns) {
+			update(digest, needs.name[c]);
+			update(digest, needs.amount[c]);
+			update(digest, needs.daysUntilDue[c]);
+		}
+
+		int[] columnRank = new int[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			columnRank[columns[i]] = i;
+		}
+
+		// canonical pair order: rows in canonical order, each row's pairs by canonical need
+		int[] canonicalPair = new int[pairs.nonZeros()];
+		long[] segment = new long[needs.size];
+		int next = 0;
+		for (int r : rows) {
+			int count = 0;
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				segment[count++] = ((long) columnRank[pairs.column[k]] << 32) | k;
+			}
+			Arrays.sort(segment, 0, count);
+			for (int i = 0; i < count; i++) {
+				canonicalPair[(int) segment[i]] = next++;
+			}
+		}
+
+		return new Fingerprint(hex(digest.digest()), canonicalPair);
+	}
+
+	private CachedSolution readFile(String key) {
+
+		Path file = directory.resolve(key + ".solution");
+		try {
+			if (!Files.isRegularFile(file)) {
+				return null;
+			}
+			long ageNanos = (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis()) * 1_000_000;
+			if (ageNanos > ttlNanos) {
+				return null;
+			}
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+			try {
+				if (in.readInt() != FILE_VERSION) {
+					return null;
+				}
+				SolveStatus status = SolveStatus.valueOf(in.readUTF());
+				double objectiveValue = in.readDouble();
+				String engine = in.readBoolean() ? in.readUTF() : null;
+				double[] allocation = new double[in.readInt()];
+				for (int k = 0; k < allocation.length; k++) {
+					allocation[k] = in.readDouble();
+				}
+				// aged from the file, so reloading it never extends its time to live
+				return new CachedSolution(status, objectiveValue, engine, allocation,
+						System.nanoTime() - Math.max(0, ageNanos));
+			} finally {
+				in.close();
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private void writeFile(String key, CachedSolution entry) {
+
+		Path temporary = null;
+		try {
+			Files.createDirectories(directory);
+			temporary = Files.createTempFile(directory, key, ".tmp");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)));
+			try {
+				out.writeInt(FILE_VERSION);
+				out.writeUTF(entry.status.name());
+				out.writeDouble(entry.objectiveValue);
+				out.writeBoolean(entry.engine != null);
+				if (entry.engine != null) {
+					out.writeUTF(entry.engine);
+				}
+				out.writeInt(entry.allocation.length);
+				for (double value : entry.allocation) {
+					out.writeDouble(value);
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(temporary, directory.resolve(key + ".solution"), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Unable to write cached solution " + key + ": " + e);
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+		update(digest, bytes.length);
+		digest.update(bytes);
+	}
+
+	private static void update(MessageDigest digest, double value) {
+		// +0.0 and -0.0 are the same input
+		update(digest, Double.doubleToLongBits(value == 0 ? 0.0 : value));
+	}
+
+	private static void update(MessageDigest digest, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			digest.update((byte) (value >>> shift));
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	public static class Fingerprint {
+
+		final String key;
+		final int[] canonicalPair;
+
+		Fingerprint(String key, int[] canonicalPair) {
+			this.key = key;
+			this.canonicalPair = canonicalPair;
+		}
+
+		public String getKey() {
+			return key;
+		}
+	}
+
+	private static class CachedSolution {
+
+		final SolveStatus status;
+		final double objectiveValue;
+		final String engine;
+		final double[] allocation;
+		final long createdNanos;
+
+		CachedSolution(SolveStatus status, double objectiveValue, String engine, double[] allocation,
+				long createdNanos) {
+			this.status = status;
+			this.objectiveValue = objectiveValue;
+			this.engine = engine;
+			this.allocation = allocation;
+			this.createdNanos = createdNanos;
+		}
+	}
+}
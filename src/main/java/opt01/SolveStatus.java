@@ -0,0 +1,32 @@
+package opt01;
+
+import com.google.ortools.linearsolver.MPSolver;
+
+/**
+ * TIME_LIMIT: the solve ran out of its {@link SolverConfig} time budget and holds the best
+ * feasible allocation it found until then.
+ */
+public enum SolveStatus {
+	OPTIMAL, FEASIBLE, TIME_LIMIT, INFEASIBLE, UNBOUNDED, ABNORMAL, NOT_SOLVED;
+
+	public boolean hasSolution() {
+		return this == OPTIMAL || this == FEASIBLE || this == TIME_LIMIT;
+	}
+
+	public static SolveStatus of(MPSolver.ResultStatus resultStatus) {
+		switch (resultStatus) {
+			case OPTIMAL:
+				return OPTIMAL;
+			case FEASIBLE:
+				return FEASIBLE;
+			case INFEASIBLE:
+				return INFEASIBLE;
+			case UNBOUNDED:
+				return UNBOUNDED;
+			case NOT_SOLVED:
+				return NOT_SOLVED;
+			default:
+				return ABNORMAL;
+		}
+	}
+}
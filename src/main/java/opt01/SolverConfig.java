@@ -0,0 +1,216 @@
+package opt01;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.google.ortools.linearsolver.MPSolver;
+import com.google.ortools.linearsolver.MPSolverParameters;
+
+/**
+ * How a solve may spend its budget: backend, time limit, relative MIP gap and solver threads.
+ * Read from config.properties on the classpath, then -D system properties of the same names,
+ * then --backend=, --time-limit=, --gap= and --threads= arguments:
+ *
+ * <pre>
+ * opt01.solver=AUTO
+ * opt01.solver.timeLimitMillis=250
+ * opt01.solver.relativeGap=0.001
+ * opt01.solver.threads=4
+ * </pre>
+ *
+ * Zero leaves the backend's own default. A solve that runs out of time with a feasible allocation
+ * in hand returns it with status {@link SolveStatus#TIME_LIMIT}; without one it is NOT_SOLVED.
+ * Of the LP backends only the JAVA simplex keeps such an allocation: GLOP and the other OR-Tools
+ * LP engines stop at their limit with nothing to return, so there the limit means NOT_SOLVED.
+ * The gap only matters to MIP engines and threads only to OR-Tools engines that use them.
+ */
+public class SolverConfig {
+
+	static final String BACKEND_PROPERTY = OptimizationSession.SOLVER_PROPERTY;
+	static final String TIME_LIMIT_PROPERTY = "opt01.solver.timeLimitMillis";
+	static final String GAP_PROPERTY = "opt01.solver.relativeGap";
+	static final String THREADS_PROPERTY = "opt01.solver.threads";
+
+	static final SolverConfig DEFAULT = new SolverConfig(OptimizationSession.DEFAULT_SOLVER, 0, 0, 0, null);
+
+	final String backend;
+	final long timeLimitMillis;
+	final double relativeGap;
+	final int threads;
+	final IncumbentListener listener;
+
+	public SolverConfig(String backend, long timeLimitMillis, double relativeGap, int threads,
+			IncumbentListener listener) {
+
+		if (timeLimitMillis < 0 || relativeGap < 0 || threads < 0) {
+			throw new IllegalArgumentException("Negative solver limit: time " + timeLimitMillis + " ms, gap "
+					+ relativeGap + ", threads " + threads);
+		}
+		this.backend = backend;
+		this.timeLimitMillis = timeLimitMillis;
+		this.relativeGap = relativeGap;
+		this.threads = threads;
+		this.listener = listener;
+	}
+
+	/**
+	 * Told about the allocations a backend holds on the way to its final one, each at least as
+	 * good as the one before, so a caller can watch a long solve or keep its latest answer.
+	 * Only the in-process simplex reports them; OR-Tools engines just return their final solution.
+	 */
+	public interface IncumbentListener {
+
+		void incumbent(double objectiveValue, long iterations, long elapsedNanos);
+	}
+
+	/**
+	 * config.properties overridden by system properties.
+	 */
+	public static SolverConfig fromProperties() {
+
+		Properties properties;
+		try {
+			properties = OptimizeGetPropertyValues.load();
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't read " + OptimizeGetPropertyValues.PROPERTIES_FILE, e);
+		}
+		properties.putAll(System.getProperties());
+		return fromProperties(properties);
+	}
+
+	public static SolverConfig fromProperties(Properties properties) {
+		try {
+			return new SolverConfig(properties.getProperty(BACKEND_PROPERTY, DEFAULT.backend),
+					Long.parseLong(properties.getProperty(TIME_LIMIT_PROPERTY, "0").trim()),
+					Double.parseDouble(properties.getProperty(GAP_PROPERTY, "0").trim()),
+					Integer.parseInt(properties.getProperty(THREADS_PROPERTY, "0").trim()), null);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Bad solver setting: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * This configuration with the --option=value arguments applied; they are removed from the
+	 * list, which keeps the other arguments in order.
+	 */
+	public SolverConfig withArguments(List<String> arguments) {
+
+		Properties properties = new Properties();
+		properties.setProperty(BACKEND_PROPERTY, backend);
+		properties.setProperty(TIME_LIMIT_PROPERTY, Long.toString(timeLimitMillis));
+		properties.setProperty(GAP_PROPERTY, Double.toString(relativeGap));
+		properties.setProperty(THREADS_PROPERTY, Integer.toString(threads));
+
+		for (Iterator<String> it = arguments.iterator(); it.hasNext();) {
+			String argument = it.next();
+			if (!argument.startsWith("--")) {
+				continue;
+			}
+			int separator = argument.indexOf('=');
+			String option = separator < 0 ? argument.substring(2) : argument.substring(2, separator);
+			String value = separator < 0 ? "" : argument.substring(separator + 1);
+			switch (option) {
+			case "backend":
+				properties.setProperty(BACKEND_PROPERTY, value);
+				break;
+			case "time-limit":
+				properties.setProperty(TIME_LIMIT_PROPERTY, value);
+				break;
+			case "gap":
+				properties.setProperty(GAP_PROPERTY, value);
+				break;
+			case "threads":
+				properties.setProperty(THREADS_PROPERTY, value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + argument
+						+ ", expected --backend=, --time-limit=, --gap= or --threads=");
+			}
+			it.remove();
+		}
+		return fromProperties(properties).withListener(listener);
+	}
+
+	public SolverConfig withBackend(String backend) {
+		return new SolverConfig(backend, timeLimitMillis, relativeGap, threads, listener);
+	}
+
+	public SolverConfig withTimeLimit(long timeLimitMillis) {
+		return new SolverConfig(backend, timeLimitMillis, relativeGap, threads, listener);
+	}
+
+	public SolverConfig withListener(IncumbentListener listener) {
+		return new SolverConfig(backend, timeLimitMillis, relativeGap, threads, listener);
+	}
+
+	/**
+	 * The time limit in nanoseconds, Long.MAX_VALUE without one or when it doesn't fit.
+	 */
+	long budgetNanos() {
+		return timeLimitMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeLimitMillis) : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Sets the time limit and threads on the solver; the gap goes in the parameters to solve with.
+	 */
+	MPSolverParameters apply(MPSolver solver) {
+
+		if (timeLimitMillis > 0) {
+			solver.setTimeLimit(timeLimitMillis);
+		}
+		if (threads > 0 && !solver.setNumThreads(threads)) {
+			System.err.println("Solver ignores the thread count " + threads);
+		}
+		MPSolverParameters parameters = new MPSolverParameters();
+		if (relativeGap > 0) {
+			parameters.setDoubleParam(MPSolverParameters.DoubleParam.RELATIVE_MIP_GAP, relativeGap);
+		}
+		return parameters;
+	}
+
+	/**
+	 * OR-Tools has no status for a solve cut short by its time limit, told apart here by how long
+	 * MPSolver.solve took: MIP engines report FEASIBLE with their incumbent, which becomes TIME_LIMIT,
+	 * while GLOP reports ABNORMAL or NOT_SOLVED without a solution, which becomes NOT_SOLVED.
+	 */
+	SolveStatus status(MPSolver.ResultStatus resultStatus, long solveMillis) {
+
+		SolveStatus status = SolveStatus.of(resultStatus);
+		if (timeLimitMillis <= 0 || solveMillis < timeLimitMillis) {
+			return status;
+		}
+		if (status == SolveStatus.FEASIBLE) {
+			return SolveStatus.TIME_LIMIT;
+		}
+		return status == SolveStatus.ABNORMAL ? SolveStatus.NOT_SOLVED : status;
+	}
+
+	/**
+	 * The OR-Tools engine this backend names, or null for AUTO and the in-process backends.
+	 */
+	String orToolsEngine() {
+
+		if (BackendSelector.AUTO_BACKEND.equalsIgnoreCase(backend) || LpSolver.JAVA_BACKEND.equalsIgnoreCase(backend)
+				|| backend.toUpperCase().startsWith(TransportationSolver.TRANSPORT_BACKEND)) {
+			return null;
+		}
+		return backend.toUpperCase();
+	}
+
+	/**
+	 * JAVA, TRANSPORT and the other backends that solve without OR-Tools.
+	 */
+	boolean inProcess() {
+		return orToolsEngine() == null && !BackendSelector.AUTO_BACKEND.equalsIgnoreCase(backend);
+	}
+
+	@Override
+	public String toString() {
+		return "Solver: [" + backend + "] Time limit: [" + (timeLimitMillis > 0 ? timeLimitMillis + " ms" : "none")
+				+ "] Gap: [" + (relativeGap > 0 ? relativeGap : "default") + "] Threads: ["
+				+ (threads > 0 ? threads : "default") + "]";
+	}
+}
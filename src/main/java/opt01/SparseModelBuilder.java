@@ -0,0 +1,88 @@
+package opt01;
+
+import com.google.ortools.linearsolver.*;
+
+/**
+ * Builds the assignment model with one variable per eligible (investment, need) pair only.
+ * Ineligible cells have no variable, so they neither earn a gain nor fund a need.
+ */
+public class SparseModelBuilder {
+
+	private final MPSolver solver;
+	private final EligiblePairs pairs;
+	private final InvestmentBook investments;
+	private final NeedBook needs;
+	private final boolean nameVariables;
+
+	MPVariable[] x;
+	MPConstraint[] accountConstraints;
+	MPConstraint[] needConstraints;
+	MPObjective objective;
+
+	public SparseModelBuilder(MPSolver solver, EligiblePairs pairs, InvestmentBook investments, NeedBook needs,
+			boolean nameVariables) {
+		this.solver = solver;
+		this.pairs = pairs;
+		this.investments = investments;
+		this.needs = needs;
+		this.nameVariables = nameVariables;
+	}
+
+	public void initializeVariables() {
+
+		x = new MPVariable[pairs.nonZeros()];
+
+		for (int r = 0; r < pairs.rows; r++) {
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				String varname = nameVariables ? "x[" + r + "][" + pairs.column[k] + "]" : "";
+				x[k] = solver.makeNumVar(0, 1.0, varname);
+			}
+		}
+	}
+
+	public void limitsPerInvestmentOption() {
+
+		accountConstraints = new MPConstraint[investments.accountCount];
+
+		for (int r = 0; r < pairs.rows; r++) {
+
+			int account = investments.accountId[r];
+			MPConstraint c0 = accountConstraints[account];
+			if (c0 == null) {
+				c0 = solver.makeConstraint(investments.accountMin[account], investments.accountMax[account],
+						investments.accountName[account]);
+				accountConstraints[account] = c0;
+			}
+
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				c0.setCoefficient(x[k], pairs.gain[k]);
+			}
+		}
+	}
+
+	public void limitPerNeed() {
+
+		needConstraints = new MPConstraint[needs.size];
+		for (int c = 0; c < needs.size; c++) {
+			needConstraints[c] = solver.makeConstraint(needs.amount[c], needs.amount[c], needs.name[c]);
+		}
+
+		for (int r = 0; r < pairs.rows; r++) {
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				int c = pairs.column[k];
+				needConstraints[c].setCoefficient(x[k], needs.amount[c]);
+			}
+		}
+	}
+
+	public MPObjective setupObjective() {
+
+		objective = solver.objective();
+		for (int k = 0; k < x.length; k++) {
+			objective.setCoefficient(x[k], pairs.gain[k]);
+		}
+		objective.setMaximization();
+
+		return objective;
+	}
+}
@@ -0,0 +1,177 @@
+package opt01;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the Limits, Needs and Investments sheets with POI's event API, one row
+ * at a time, straight into the primitive books of a {@link Portfolio}.
+ */
+public class StreamingWorkbookLoader {
+
+	static final String LIMITS_SHEET = "Limits";
+	static final String NEEDS_SHEET = "Needs";
+	static final String INVESTMENTS_SHEET = "Investments";
+	static final int COLUMNS = 3;
+
+	private HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+	private NeedBook needs = new NeedBook();
+	private InvestmentBook investments = new InvestmentBook();
+
+	public static Portfolio load(String path) throws IOException {
+
+		StreamingWorkbookLoader loader = new StreamingWorkbookLoader();
+		OPCPackage excelPackage = null;
+
+		try {
+			excelPackage = OPCPackage.open(path, PackageAccess.READ);
+			XSSFReader reader = new XSSFReader(excelPackage);
+			ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(excelPackage);
+
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (sheets.hasNext()) {
+				InputStream sheet = sheets.next();
+				try {
+					String sheetName = sheets.getSheetName();
+					if (LIMITS_SHEET.equals(sheetName) || NEEDS_SHEET.equals(sheetName)
+							|| INVESTMENTS_SHEET.equals(sheetName)) {
+						loader.readSheet(sheetName, sheet, sharedStrings);
+					}
+				} finally {
+					sheet.close();
+				}
+			}
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+			throw new IOException("Unable to read workbook " + path, e);
+		} finally {
+			if (excelPackage != null) {
+				excelPackage.revert();
+			}
+		}
+
+		// Limits can come after Investments in the workbook, so they are resolved once every sheet was read
+		loader.resolveInvestmentLimits();
+		return new Portfolio(loader.limits, loader.needs, loader.investments);
+	}
+
+	private void readSheet(String sheetName, InputStream sheet, ReadOnlySharedStringsTable sharedStrings)
+			throws IOException, SAXException, ParserConfigurationException {
+
+		XMLReader parser = XMLHelper.newXMLReader();
+		parser.setContentHandler(new SheetHandler(sheetName, sharedStrings));
+		parser.parse(new InputSource(sheet));
+	}
+
+	private void addRow(String sheetName, String[] cells) {
+
+		if (LIMITS_SHEET.equals(sheetName)) {
+			String name = cells[0];
+			double min = Double.parseDouble(cells[1]);
+			double max = Double.parseDouble(cells[2]);
+			limits.put(name, new InvestmentLimits(name, min, max));
+
+		} else if (NEEDS_SHEET.equals(sheetName)) {
+			String name = cells[0];
+			double amount = Double.parseDouble(cells[1]);
+			long daysUntilDue = (long) Double.parseDouble(cells[2]);
+			needs.add(name, amount, daysUntilDue);
+
+		} else if (INVESTMENTS_SHEET.equals(sheetName)) {
+			String nombre = cells[0];
+			long plazo = (long) Double.parseDouble(cells[1]);
+			double tasa = Double.parseDouble(cells[2]);
+			investments.add(nombre, tasa, plazo);
+		}
+	}
+
+	private void resolveInvestmentLimits() throws IOException {
+
+		for (int account = 0; account < investments.accountCount; account++) {
+			InvestmentLimits investmentLimit = limits.get(investments.accountName[account]);
+			if (investmentLimit == null) {
+				throw new IOException("No limits found for account " + investments.accountName[account]);
+			}
+			investments.setAccountLimits(account, investmentLimit.minInvestment, investmentLimit.maxInvestment);
+		}
+	}
+
+	/**
+	 * Collects the first three cells of every row and hands them to the loader, skipping the header row.
+	 */
+	private class SheetHandler extends DefaultHandler {
+
+		private final String sheetName;
+		private final ReadOnlySharedStringsTable sharedStrings;
+		private final String[] cells = new String[COLUMNS];
+		private final StringBuilder value = new StringBuilder();
+		private int rowNum = -1;
+		private int column = -1;
+		private String cellType;
+		private boolean inValue;
+
+		SheetHandler(String sheetName, ReadOnlySharedStringsTable sharedStrings) {
+			this.sheetName = sheetName;
+			this.sharedStrings = sharedStrings;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes) {
+
+			if ("row".equals(localName)) {
+				String r = attributes.getValue("r");
+				rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+				for (int i = 0; i < COLUMNS; i++) {
+					cells[i] = null;
+				}
+			} else if ("c".equals(localName)) {
+				String ref = attributes.getValue("r");
+				column = ref != null ? new CellReference(ref).getCol() : column + 1;
+				cellType = attributes.getValue("t");
+			} else if ("v".equals(localName) || "t".equals(localName)) {
+				inValue = true;
+				value.setLength(0);
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (inValue) {
+				value.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+
+			if ("v".equals(localName) || "t".equals(localName)) {
+				inValue = false;
+				if (column >= 0 && column < COLUMNS) {
+					cells[column] = "s".equals(cellType)
+							? sharedStrings.getItemAt(Integer.parseInt(value.toString())).getString()
+							: value.toString();
+				}
+			} else if ("row".equals(localName)) {
+				if (rowNum != 0 && cells[0] != null) {
+					addRow(sheetName, cells);
+				}
+				column = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package opt01;
+
+/**
+ * Status, gain and pivots of every point of a {@link ParametricSweep}, and whether the allocation
+ * at that point differs from the one of the unchanged program.
+ */
+public class SweepResult {
+
+	final String parameter;
+	final double[] values;
+	final LpSolution reference;
+	final SolveStatus[] status;
+	final double[] objectiveValue;
+	final long[] iterations;
+	final boolean[] changed;
+
+	SweepResult(String parameter, double[] values, LpSolution reference) {
+		this.parameter = parameter;
+		this.values = values;
+		this.reference = reference;
+		this.status = new SolveStatus[values.length];
+		this.objectiveValue = new double[values.length];
+		this.iterations = new long[values.length];
+		this.changed = new boolean[values.length];
+	}
+
+	void record(int point, LpSolution solution, boolean allocationChanged) {
+		status[point] = solution.status;
+		objectiveValue[point] = solution.objectiveValue;
+		iterations[point] = solution.iterations;
+		changed[point] = allocationChanged;
+	}
+
+	public int getPoints() {
+		return values.length;
+	}
+
+	public double getValue(int point) {
+		return values[point];
+	}
+
+	public SolveStatus getStatus(int point) {
+		return status[point];
+	}
+
+	public double getObjectiveValue(int point) {
+		return objectiveValue[point];
+	}
+
+	public boolean isChanged(int point) {
+		return changed[point];
+	}
+
+	/**
+	 * First point, in sweep order, where the allocation differs from the unchanged program's; -1 if none.
+	 */
+	public int firstChange() {
+		for (int p = 0; p < changed.length; p++) {
+			if (changed[p]) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	public long getTotalIterations() {
+		long total = 0;
+		for (long pivots : iterations) {
+			total += pivots;
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+
+		int solved = 0;
+		for (SolveStatus pointStatus : status) {
+			if (pointStatus != null && pointStatus.hasSolution()) {
+				solved++;
+			}
+		}
+		StringBuilder text = new StringBuilder()
+				.append("Sweep: [").append(parameter).append("] ")
+				.append("Points: [").append(values.length).append("] ")
+				.append("Solved: [").append(solved).append("] ")
+				.append("Iterations: [").append(getTotalIterations()).append("] ")
+				.append("Cold solve iterations: [").append(reference.iterations).append("]");
+
+		int first = firstChange();
+		if (first < 0) {
+			text.append("\nAllocation unchanged over the sweep");
+		} else {
+			if (first > 0) {
+				text.append("\nAllocation unchanged up to [").append(values[first - 1]).append("]");
+			}
+			text.append("\nFirst change at [").append(values[first]).append("] gain [").append(objectiveValue[first])
+					.append("] status [").append(status[first]).append("]");
+		}
+		return text.toString();
+	}
+}
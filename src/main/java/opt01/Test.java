@@ -3,6 +3,7 @@ package opt01;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -23,9 +24,10 @@ public class Test {
 	static long[] terms;
 	static Need[] needsList;
 	static Investment[] investmentList;
+	static RateIndex rates;
 	static List<Investment> investmentListNoDups;
 	static final int DAYS_IN_YEAR = 360;
-	static final String DATA_FILE_PATH = "src\\\\main\\\\resources\\\\data2.xlsx";
+	static final String DATA_FILE_PATH = Paths.get("src", "main", "resources", "data2.xlsx").toString();
 
 	static {
 		System.loadLibrary("jniortools");
@@ -38,6 +40,7 @@ public class Test {
 		limits = readInvestmentLimitsFromFile();
 		needsList = readNeedsFromFile();
 		investmentList = readInvestmentsFromFile();
+		rates = RateIndex.build(investmentList);
 		investmentListNoDups = removeDupsFrom(investmentList);
 
 		double[][] gains = calculateGainsTable();
@@ -212,14 +215,7 @@ public class Test {
 	}
 
 	private static double readInterestRate(long term, String accountName) {
-
-		double maxInterestRateForTerm = 0;
-		for (int r = 0; r < investmentList.length; r++) {
-			if (investmentList[r].getAccountName().equals(accountName) && investmentList[r].getTerm() <= term) {
-				maxInterestRateForTerm = Math.max(maxInterestRateForTerm, investmentList[r].getInterestRate());
-			}
-		}
-		return maxInterestRateForTerm;
+		return rates.bestRate(accountName, term);
 	}
 
 	private static void setupConstrains(MPSolver solver, MPVariable[][] x) {
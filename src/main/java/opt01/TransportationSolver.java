@@ -0,0 +1,300 @@
+package opt01;
+
+import java.util.Arrays;
+
+/**
+ * Solves the allocation model as a min-cost flow on the account -> need bipartite graph:
+ * source -> account (capacity from the account limits), account -> need where some product of
+ * the account is eligible, need -> sink (capacity = need amount), with successive shortest paths.
+ *
+ * Account limits apply to the matured value, so the model is a plain transportation problem only
+ * when all eligible products of an account share one growth factor; that growth turns the limits
+ * into principal capacities. With mixed rates in an account the limits cap gain while needs are
+ * funded in principal, a generalized flow, so that model, or one with extra rows or changed
+ * bounds, goes to the fallback solver.
+ */
+public class TransportationSolver implements LpSolver {
+
+	static final String TRANSPORT_BACKEND = "TRANSPORT";
+	static final double TOLERANCE = 1e-9;
+
+	private final LpSolver fallback;
+
+	public TransportationSolver(LpSolver fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	public String name() {
+		return TRANSPORT_BACKEND;
+	}
+
+	@Override
+	public SolverConfig config() {
+		return fallback.config();
+	}
+
+	@Override
+	public LpSolution solve(LinearProgram lp) {
+
+		double[] growth = accountGrowth(lp);
+		if (growth == null) {
+			return fallback.solve(lp);
+		}
+		return new FlowNetwork(lp, growth).solve();
+	}
+
+	/**
+	 * Growth factor (gain / amount) per account row, or null when the program is not the plain
+	 * allocation model or an account mixes products with different growth.
+	 */
+	static double[] accountGrowth(LinearProgram lp) {
+
+		if (lp.pairs == null || lp.numConstraints != lp.accountRows + lp.needs.size
+				|| lp.numVariables != lp.pairs.nonZeros() || !lp.maximize) {
+			return null;
+		}
+
+		EligiblePairs pairs = lp.pairs;
+		double[] growth = new double[lp.accountRows];
+		Arrays.fill(growth, Double.NaN);
+
+		for (int r = 0; r < pairs.rows; r++) {
+			int accountRow = lp.accountRow[lp.investments.accountId[r]];
+			for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+				int c = pairs.column[k];
+				double amount = lp.needs.amount[c];
+				if (lp.lower[k] != 0 || lp.upper[k] != 1 || amount <= 0
+						|| lp.columnStart[k + 1] - lp.columnStart[k] != 2
+						|| lp.rowIndex[2 * k] != accountRow || lp.value[2 * k] != lp.objective[k]
+						|| lp.rowIndex[2 * k + 1] != lp.accountRows + c || lp.value[2 * k + 1] != amount) {
+					return null;
+				}
+
+				double g = lp.objective[k] / amount;
+				if (g <= 0) {
+					// a product that loses everything has no principal capacity
+					return null;
+				}
+				if (Double.isNaN(growth[accountRow])) {
+					growth[accountRow] = g;
+				} else if (Math.abs(growth[accountRow] - g) > TOLERANCE * g) {
+					return null;
+				}
+			}
+		}
+
+		for (int c = 0; c < lp.needs.size; c++) {
+			int row = lp.accountRows + c;
+			if (lp.rowLower[row] != lp.needs.amount[c] || lp.rowUpper[row] != lp.needs.amount[c]) {
+				return null;
+			}
+		}
+		return growth;
+	}
+
+	/**
+	 * Residual network in primitive arrays. Each account has two source arcs: its minimum, priced
+	 * with a large bonus so it fills first, and the rest of its capacity.
+	 */
+	private static class FlowNetwork {
+
+		final LinearProgram lp;
+		final double[] growth;
+		final int accounts;
+		final int needs;
+		final int source;
+		final int sink;
+		final int nodes;
+
+		int edges;
+		int[] head;
+		int[] next;
+		int[] to;
+		double[] capacity;
+		double[] cost;
+
+		int[] minimumEdge;
+		int[] pairEdge;
+		int[] edgePair;
+
+		FlowNetwork(LinearProgram lp, double[] growth) {
+
+			this.lp = lp;
+			this.growth = growth;
+			this.accounts = lp.accountRows;
+			this.needs = lp.needs.size;
+			this.source = accounts + needs;
+			this.sink = source + 1;
+			this.nodes = sink + 1;
+
+			int maxEdges = 2 * (2 * accounts + needs + lp.numVariables);
+			head = new int[nodes];
+			Arrays.fill(head, -1);
+			next = new int[maxEdges];
+			to = new int[maxEdges];
+			capacity = new double[maxEdges];
+			cost = new double[maxEdges];
+		}
+
+		LpSolution solve() {
+
+			double maxGrowth = 1;
+			for (double g : growth) {
+				maxGrowth = Math.max(maxGrowth, Double.isNaN(g) ? 0 : g);
+			}
+			double minimumBonus = 4 * (accounts + 1) * maxGrowth + 1;
+
+			minimumEdge = new int[accounts];
+			for (int a = 0; a < accounts; a++) {
+				if (Double.isNaN(growth[a])) {
+					if (lp.rowLower[a] > 0 || lp.rowUpper[a] < 0) {
+						return result(SolveStatus.INFEASIBLE, 0);
+					}
+					minimumEdge[a] = -1;
+					continue;
+				}
+				double min = Math.max(0, lp.rowLower[a]) / growth[a];
+				double max = lp.rowUpper[a] / growth[a];
+				if (max < min - TOLERANCE) {
+					return result(SolveStatus.INFEASIBLE, 0);
+				}
+				minimumEdge[a] = addEdge(source, a, min, -growth[a] - minimumBonus);
+				addEdge(source, a, Math.max(0, max - min), -growth[a]);
+			}
+
+			// One arc per (account, need), carried by the first eligible product of the account
+			pairEdge = new int[accounts * needs];
+			Arrays.fill(pairEdge, -1);
+			edgePair = new int[capacity.length];
+			EligiblePairs pairs = lp.pairs;
+			for (int r = 0; r < pairs.rows; r++) {
+				int a = lp.accountRow[lp.investments.accountId[r]];
+				for (int k = pairs.rowStart[r]; k < pairs.rowStart[r + 1]; k++) {
+					int c = pairs.column[k];
+					if (pairEdge[a * needs + c] < 0) {
+						int e = addEdge(a, accounts + c, Double.POSITIVE_INFINITY, 0);
+						pairEdge[a * needs + c] = e;
+						edgePair[e] = k;
+					}
+				}
+			}
+
+			double demand = 0;
+			for (int c = 0; c < needs; c++) {
+				addEdge(accounts + c, sink, lp.needs.amount[c], 0);
+				demand += lp.needs.amount[c];
+			}
+
+			long augmentations = 0;
+			double flow = 0;
+			double[] distance = new double[nodes];
+			int[] parentEdge = new int[nodes];
+			while (flow < demand * (1 - TOLERANCE) && shortestPath(distance, parentEdge)) {
+				double push = demand - flow;
+				for (int v = sink; v != source; v = to[parentEdge[v] ^ 1]) {
+					push = Math.min(push, capacity[parentEdge[v]]);
+				}
+				for (int v = sink; v != source; v = to[parentEdge[v] ^ 1]) {
+					capacity[parentEdge[v]] -= push;
+					capacity[parentEdge[v] ^ 1] += push;
+				}
+				flow += push;
+				augmentations++;
+			}
+
+			if (flow < demand * (1 - TOLERANCE)) {
+				return result(SolveStatus.INFEASIBLE, augmentations);
+			}
+			for (int a = 0; a < accounts; a++) {
+				if (minimumEdge[a] >= 0 && capacity[minimumEdge[a]] > TOLERANCE * (1 + demand)) {
+					return result(SolveStatus.INFEASIBLE, augmentations);
+				}
+			}
+			return result(SolveStatus.OPTIMAL, augmentations);
+		}
+
+		/** Bellman-Ford with a FIFO queue; costs can be negative but the residual graph has no negative cycles. */
+		boolean shortestPath(double[] distance, int[] parentEdge) {
+
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(parentEdge, -1);
+			boolean[] queued = new boolean[nodes];
+			int[] queue = new int[nodes];
+			int queueHead = 0;
+			int queueSize = 0;
+
+			distance[source] = 0;
+			queue[0] = source;
+			queued[source] = true;
+			queueSize = 1;
+
+			while (queueSize > 0) {
+				int u = queue[queueHead];
+				queueHead = (queueHead + 1) % nodes;
+				queueSize--;
+				queued[u] = false;
+
+				for (int e = head[u]; e >= 0; e = next[e]) {
+					if (capacity[e] <= TOLERANCE) {
+						continue;
+					}
+					int v = to[e];
+					double candidate = distance[u] + cost[e];
+					if (candidate < distance[v] - TOLERANCE) {
+						distance[v] = candidate;
+						parentEdge[v] = e;
+						if (!queued[v]) {
+							queue[(queueHead + queueSize) % nodes] = v;
+							queueSize++;
+							queued[v] = true;
+						}
+					}
+				}
+			}
+			return parentEdge[sink] >= 0;
+		}
+
+		int addEdge(int from, int target, double edgeCapacity, double edgeCost) {
+
+			int e = edges;
+			to[e] = target;
+			capacity[e] = edgeCapacity;
+			cost[e] = edgeCost;
+			next[e] = head[from];
+			head[from] = e;
+
+			to[e + 1] = from;
+			capacity[e + 1] = 0;
+			cost[e + 1] = -edgeCost;
+			next[e + 1] = head[target];
+			head[target] = e + 1;
+
+			edges += 2;
+			return e;
+		}
+
+		LpSolution result(SolveStatus status, long augmentations) {
+
+			if (!status.hasSolution()) {
+				return new LpSolution(status, 0, null, null, null, augmentations, TRANSPORT_BACKEND);
+			}
+
+			double[] values = new double[lp.numVariables];
+			double objectiveValue = 0;
+			for (int i = 0; i < pairEdge.length; i++) {
+				int e = pairEdge[i];
+				if (e < 0) {
+					continue;
+				}
+				// the reverse arc holds the flow that went through this (account, need) arc
+				double principal = capacity[e + 1];
+				int k = edgePair[e];
+				double amount = lp.needs.amount[lp.pairs.column[k]];
+				values[k] = Math.min(1, principal / amount);
+				objectiveValue += lp.objective[k] * values[k];
+			}
+			return new LpSolution(status, objectiveValue, values, null, null, augmentations, TRANSPORT_BACKEND);
+		}
+	}
+}
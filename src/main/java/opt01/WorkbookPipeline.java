@@ -0,0 +1,298 @@
+package opt01;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves a directory or glob of client workbooks in one run as a two-stage pipeline: parser
+ * threads decode workbooks into portfolios while solver workers consume them, so parsing and
+ * solving overlap. The portfolios pass through a bounded queue; a full queue blocks the parsers
+ * (backpressure), an empty one idles the solvers. Queue depths and the time each stage spends
+ * working, blocked and idle go to the {@link MetricsRegistry} and the summary.
+ */
+public class WorkbookPipeline {
+
+	static final String PARSERS_PROPERTY = "opt01.pipeline.parsers";
+	static final String SOLVERS_PROPERTY = "opt01.pipeline.solvers";
+	static final String QUEUE_PROPERTY = "opt01.pipeline.queue";
+	static final String METRIC_PREFIX = RunInstrumentation.METRIC_PREFIX + "pipeline.";
+	static final String WORKBOOK_GLOB = "glob:*.{xlsx,csv,portfolio}";
+
+	private static final Parsed END = new Parsed(-1, null, null, null, 0);
+
+	private final int parsers;
+	private final int solvers;
+	private final int queueCapacity;
+	private final SolverConfig config;
+	private final SolutionCache cache = SolutionCache.fromProperties();
+
+	private final AtomicLong parseNanos = new AtomicLong();
+	private final AtomicLong solveNanos = new AtomicLong();
+	private final AtomicLong blockedNanos = new AtomicLong();
+	private final AtomicLong idleNanos = new AtomicLong();
+	private final AtomicLong depthSamples = new AtomicLong();
+	private final AtomicLong depthSum = new AtomicLong();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+	private long elapsedNanos;
+
+	public WorkbookPipeline(int parsers, int solvers, int queueCapacity, String backend) {
+		this(parsers, solvers, queueCapacity, SolverConfig.fromProperties().withBackend(backend));
+	}
+
+	public WorkbookPipeline(int parsers, int solvers, int queueCapacity, SolverConfig config) {
+		this.parsers = Math.max(1, parsers);
+		this.solvers = Math.max(1, solvers);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.config = config;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		SolverConfig config = SolverConfig.fromProperties().withArguments(arguments);
+
+		List<Path> workbooks = new ArrayList<Path>();
+		if (arguments.isEmpty()) {
+			workbooks.addAll(expand(Paths.get(PortfolioSource.DATA_FILE_PATH).getParent().toString()));
+		}
+		for (String argument : arguments) {
+			workbooks.addAll(expand(argument));
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		int solvers = Integer.getInteger(SOLVERS_PROPERTY, Math.max(1, cores / 2));
+		WorkbookPipeline pipeline = new WorkbookPipeline(Integer.getInteger(PARSERS_PROPERTY, Math.max(1, cores / 2)),
+				solvers, Integer.getInteger(QUEUE_PROPERTY, 2 * solvers), config);
+		List<OptimizationResult> results = pipeline.run(workbooks);
+
+		results.forEach(System.out::println);
+		System.out.println(pipeline.summary(results));
+	}
+
+	/**
+	 * True for a directory or a glob pattern, the inputs that name several workbooks.
+	 */
+	public static boolean isBatchInput(String argument) {
+		return globStart(argument) >= 0 || Files.isDirectory(Paths.get(argument));
+	}
+
+	/**
+	 * The workbooks an argument names, sorted: every .xlsx, .csv and .portfolio file of a directory,
+	 * the files matching a glob such as clients/*.xlsx (** crosses directories), or the file itself.
+	 * Each is read by the {@link PortfolioSource} of its extension.
+	 */
+	public static List<Path> expand(String argument) throws IOException {
+
+		int glob = globStart(argument);
+		if (glob < 0) {
+			Path path = Paths.get(argument);
+			if (!Files.isDirectory(path)) {
+				return Arrays.asList(path);
+			}
+			return find(path, FileSystems.getDefault().getPathMatcher(WORKBOOK_GLOB), 1);
+		}
+
+		int separator = Math.max(argument.lastIndexOf('/', glob), argument.lastIndexOf('\\', glob));
+		Path directory = Paths.get(separator < 0 ? "." : argument.substring(0, separator + 1));
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument.substring(separator + 1));
+		return find(directory, matcher, Integer.MAX_VALUE);
+	}
+
+	private static List<Path> find(Path directory, PathMatcher matcher, int depth) throws IOException {
+		try (Stream<Path> files = Files.walk(directory, depth)) {
+			return files.filter(Files::isRegularFile)
+					.filter(file -> matcher.matches(directory.relativize(file)))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static int globStart(String argument) {
+		for (int i = 0; i < argument.length(); i++) {
+			if ("*?[{".indexOf(argument.charAt(i)) >= 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Results in the order of the workbooks. A workbook that fails to parse or solve gets a failed result.
+	 * A stage that dies, for example a solver whose native library won't load, stops the whole run
+	 * with an IllegalStateException: the other stages are interrupted rather than left waiting on the queue.
+	 */
+	public List<OptimizationResult> run(List<Path> workbooks) throws InterruptedException {
+
+		long start = System.nanoTime();
+		int count = workbooks.size();
+		OptimizationResult[] results = new OptimizationResult[count];
+		ArrayBlockingQueue<Parsed> queue = new ArrayBlockingQueue<Parsed>(queueCapacity);
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger parsing = new AtomicInteger(parsers);
+
+		List<Callable<Void>> stages = new ArrayList<Callable<Void>>(parsers + solvers);
+		for (int p = 0; p < parsers; p++) {
+			stages.add(() -> {
+				int index;
+				while ((index = next.getAndIncrement()) < count) {
+					RunInstrumentation.getRegistry().record(METRIC_PREFIX + "pending.depth", count - index - 1);
+					queue(queue, parse(index, workbooks.get(index)));
+				}
+				// the last parser out tells every solver to stop; a parser that failed fails the run instead
+				if (parsing.decrementAndGet() == 0) {
+					for (int s = 0; s < solvers; s++) {
+						queue(queue, END);
+					}
+				}
+				return null;
+			});
+		}
+		for (int s = 0; s < solvers; s++) {
+			stages.add(() -> {
+				LpSolver solver = LpSolver.forConfig(config);
+				while (true) {
+					long waitStart = System.nanoTime();
+					Parsed item = queue.take();
+					idleNanos.addAndGet(System.nanoTime() - waitStart);
+					recordDepth(queue.size());
+					if (item == END) {
+						return null;
+					}
+					results[item.index] = solve(item, solver);
+				}
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(parsers + solvers);
+		CompletionService<Void> finished = new ExecutorCompletionService<Void>(pool);
+		try {
+			for (Callable<Void> stage : stages) {
+				finished.submit(stage);
+			}
+			// in the order the stages end, so the first failure is seen while the others still run
+			for (int i = 0; i < stages.size(); i++) {
+				try {
+					finished.take().get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return Arrays.asList(results);
+		} finally {
+			// wakes parsers blocked on a full queue and solvers waiting on an empty one
+			pool.shutdownNow();
+			elapsedNanos = System.nanoTime() - start;
+		}
+	}
+
+	private Parsed parse(int index, Path workbook) {
+
+		long start = System.nanoTime();
+		Portfolio portfolio = null;
+		Exception error = null;
+		try {
+			portfolio = PortfolioSource.load(workbook.toString());
+		} catch (Exception e) {
+			error = e;
+		}
+		long nanos = System.nanoTime() - start;
+		parseNanos.addAndGet(nanos);
+		RunInstrumentation.getRegistry().record(METRIC_PREFIX + "parse.nanos", nanos);
+		return new Parsed(index, workbook, portfolio, error, nanos);
+	}
+
+	private OptimizationResult solve(Parsed item, LpSolver solver) {
+
+		String name = item.workbook.toString();
+		if (item.error != null) {
+			return OptimizationResult.failed(name, item.error, item.parseNanos);
+		}
+		long start = System.nanoTime();
+		OptimizationResult result;
+		try {
+			result = new OptimizationSession(name, item.portfolio, solver).setCache(cache).solve();
+		} catch (RuntimeException e) {
+			result = OptimizationResult.failed(name, e, System.nanoTime() - start);
+		}
+		long nanos = System.nanoTime() - start;
+		solveNanos.addAndGet(nanos);
+		RunInstrumentation.getRegistry().record(METRIC_PREFIX + "solve.nanos", nanos);
+		return result;
+	}
+
+	private void queue(ArrayBlockingQueue<Parsed> queue, Parsed item) throws InterruptedException {
+
+		long waitStart = System.nanoTime();
+		queue.put(item);
+		long blocked = System.nanoTime() - waitStart;
+		blockedNanos.addAndGet(blocked);
+		RunInstrumentation.getRegistry().record(METRIC_PREFIX + "parser.blockedNanos", blocked);
+		recordDepth(queue.size());
+	}
+
+	private void recordDepth(int depth) {
+		depthSamples.incrementAndGet();
+		depthSum.addAndGet(depth);
+		maxDepth.accumulateAndGet(depth, Math::max);
+		RunInstrumentation.getRegistry().record(METRIC_PREFIX + "parsed.depth", depth);
+	}
+
+	public String summary(List<OptimizationResult> results) {
+
+		int solved = 0;
+		for (OptimizationResult result : results) {
+			if (result.status.hasSolution()) {
+				solved++;
+			}
+		}
+		double seconds = elapsedNanos / 1e9;
+		long samples = depthSamples.get();
+		return "Workbooks: " + results.size() + " Solved: " + solved + " Parsers: " + parsers + " Solvers: " + solvers +
+			   " Time: " + String.format("%.3f", seconds) + " s" +
+			   " Throughput: " + String.format("%.1f", seconds > 0 ? results.size() / seconds : 0) + " workbooks/s" +
+			   "\nParse: " + parseNanos.get() / 1_000_000 + " ms Solve: " + solveNanos.get() / 1_000_000 + " ms" +
+			   " Parsers blocked: " + blockedNanos.get() / 1_000_000 + " ms" +
+			   " Solvers idle: " + idleNanos.get() / 1_000_000 + " ms" +
+			   " Queue depth: mean " + String.format("%.1f", samples > 0 ? (double) depthSum.get() / samples : 0) +
+			   " max " + maxDepth.get() + " of " + queueCapacity +
+			   "\nCache: " + cache;
+	}
+
+	/**
+	 * A decoded workbook on its way to a solver, or the reason it couldn't be decoded.
+	 */
+	private static class Parsed {
+
+		final int index;
+		final Path workbook;
+		final Portfolio portfolio;
+		final Exception error;
+		final long parseNanos;
+
+		Parsed(int index, Path workbook, Portfolio portfolio, Exception error, long parseNanos) {
+			this.index = index;
+			this.workbook = workbook;
+			this.portfolio = portfolio;
+			this.error = error;
+			this.parseNanos = parseNanos;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The parser's own number path against {@link Double#parseDouble(String)}: every value is read
+ * as the rate of an I record and must come back with the same bits.
+ */
+public class CsvPortfolioSourceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void parsesAroundFastPathDigitLimit() throws IOException {
+		assertParsedLikeJava("123456789012345", "1234567890123456", "12345678901234567",
+				"1.23456789012345", "1.234567890123456", "0.123456789012345", "0.1234567890123456",
+				"999999999999999", "9999999999999999", "9007199254740993", "0.30000000000000004");
+	}
+
+	@Test
+	public void parsesLeadingAndTrailingZeros() throws IOException {
+		assertParsedLikeJava("0", "00", "0.0", "000123.4500", "0.000000000000000000001", "0000000000000000001",
+				"1.2300000000000000000", "100000000000000000000000", "0.05", "5.", ".5", "000.000100");
+	}
+
+	@Test
+	public void parsesExponentsAroundExactPowersOfTen() throws IOException {
+		assertParsedLikeJava("1e22", "1e23", "1e-22", "1e-23", "9.5e22", "9.5e23", "3e-22", "3e-23",
+				"123456789012345e8", "123456789012345e-30", "1.5E+22", "1.5E-22", "1e0", "1e+0", "1e-0",
+				"0.001e25", "1e400", "1e-400", "1.7976931348623157e308", "4.9e-324");
+	}
+
+	@Test
+	public void parsesSigns() throws IOException {
+		assertParsedLikeJava("+1.5", "-1.5", "-0", "-0.0", "+0", "-1e22", "-1e-23", "-.5", "+.5");
+	}
+
+	@Test
+	public void rejectsWhatParseDoubleRejects() throws IOException {
+		for (String value : Arrays.asList("-", "+", "1e", "1e+", "-e5", ".", "1.2.3", "1e5e5", "0x10", "1,5x")) {
+			try {
+				Double.parseDouble(value);
+				fail("parseDouble accepted " + value);
+			} catch (NumberFormatException expected) {
+				// the parser must reject it the same way
+			}
+			Path file = write(Arrays.asList(value));
+			try {
+				new CsvPortfolioSource().load(file);
+				fail("accepted " + value);
+			} catch (IllegalArgumentException expected) {
+				// reported with its line number
+			}
+		}
+	}
+
+	@Test
+	public void parsesRandomDecimalsLikeJava() throws IOException {
+
+		Random random = new Random(24);
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder value = new StringBuilder();
+			if (random.nextInt(4) == 0) {
+				value.append('-');
+			}
+			int digits = 1 + random.nextInt(18);
+			int point = random.nextInt(digits + 1);
+			for (int d = 0; d < digits; d++) {
+				if (d == point) {
+					value.append('.');
+				}
+				value.append((char) ('0' + random.nextInt(10)));
+			}
+			if (random.nextBoolean()) {
+				value.append('e').append(random.nextInt(51) - 25);
+			}
+			values.add(value.toString());
+			values.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+		}
+		assertParsedLikeJava(values.toArray(new String[0]));
+	}
+
+	@Test
+	public void readsLinesSpanningMappingWindows() throws IOException {
+
+		Random random = new Random(30);
+		List<String> values = new ArrayList<String>();
+		for (int i = 0; i < 3000; i++) {
+			values.add(Double.toString(random.nextDouble() * 1000));
+		}
+		Path file = write(values);
+
+		// odd window sizes so that lines break at every offset within a record
+		for (int window : new int[] { 4096, 4099, 5000 }) {
+			Portfolio portfolio = new CsvPortfolioSource(window).load(file);
+			assertRates(values, portfolio);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsLineLongerThanWindow() throws IOException {
+
+		StringBuilder digits = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			digits.append('1');
+		}
+		new CsvPortfolioSource(4096).load(write(Arrays.asList("1.5", digits.toString(), "2.5")));
+	}
+
+	private void assertParsedLikeJava(String... values) throws IOException {
+		assertRates(Arrays.asList(values), new CsvPortfolioSource().load(write(Arrays.asList(values))));
+	}
+
+	private static void assertRates(List<String> values, Portfolio portfolio) {
+
+		assertEquals(values.size(), portfolio.investments.size);
+		for (int r = 0; r < values.size(); r++) {
+			double expected = Double.parseDouble(values.get(r));
+			assertEquals(values.get(r), Double.doubleToRawLongBits(expected),
+					Double.doubleToRawLongBits(portfolio.investments.rate[r]));
+		}
+	}
+
+	/**
+	 * One account with a rate per value, in order.
+	 */
+	private Path write(List<String> rates) throws IOException {
+
+		StringBuilder csv = new StringBuilder("L,Account,0,1000000\n");
+		for (String rate : rates) {
+			csv.append("I,Account,30,").append(rate).append('\n');
+		}
+		Path file = folder.newFile().toPath();
+		Files.write(file, csv.toString().getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+}
@@ -0,0 +1,63 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EligiblePairsTest {
+
+	@Test
+	public void singleThreadedMatchesDenseReference() {
+		assertMatchesDenseReference(new GainsEngine(1));
+	}
+
+	@Test
+	public void parallelMatchesDenseReference() {
+		assertMatchesDenseReference(new GainsEngine(4));
+	}
+
+	@Test
+	public void sizesEngineByPairs() {
+		assertMatchesDenseReference(null);
+	}
+
+	/**
+	 * Every cell whose term fits before the need is due, in due date order, with the same gain as
+	 * one year of simple interest computed cell by cell.
+	 */
+	static void assertMatchesDenseReference(GainsEngine engine) {
+
+		Random random = new Random(3);
+		InvestmentBook investments = new InvestmentBook();
+		for (int r = 0; r < 2000; r++) {
+			investments.add("Account" + random.nextInt(20), 0.001 * random.nextInt(80), 30 * (1 + random.nextInt(24)));
+		}
+		NeedBook needs = new NeedBook();
+		for (int c = 0; c < 300; c++) {
+			needs.add("Need" + c, 1000 + random.nextInt(100000), 1 + random.nextInt(800));
+		}
+
+		EligiblePairs pairs = EligiblePairs.build(investments, needs, engine);
+
+		for (int r = 0; r < investments.size; r++) {
+			double dailyRate = investments.rate[r] / GainsEngine.DAYS_IN_YEAR;
+			int eligible = 0;
+			for (int c = 0; c < needs.size; c++) {
+				int k = pairs.find(r, c);
+				if (needs.daysUntilDue[c] < investments.term[r]) {
+					assertEquals(-1, k);
+					continue;
+				}
+				eligible++;
+				assertEquals(GainsEngine.gainInOneYear(needs.amount[c], dailyRate), pairs.gain[k], 0);
+				if (k > pairs.rowStart[r]) {
+					assertTrue(needs.daysUntilDue[pairs.column[k - 1]] <= needs.daysUntilDue[c]);
+				}
+			}
+			assertEquals(eligible, pairs.rowStart[r + 1] - pairs.rowStart[r]);
+		}
+	}
+}
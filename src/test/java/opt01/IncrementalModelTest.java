@@ -0,0 +1,72 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.ortools.linearsolver.MPSolver;
+
+public class IncrementalModelTest {
+
+	static final double DELTA = 1e-7;
+
+	@Before
+	public void requireOrTools() {
+		assumeTrue("OR-Tools native library not on java.library.path", SimplexLpSolverTest.orToolsAvailable());
+	}
+
+	@Test
+	public void needEditMatchesColdSolve() {
+
+		Portfolio portfolio = portfolio(80000, 0.05);
+		IncrementalModel model = IncrementalModel.create(portfolio);
+		assertEquals(MPSolver.ResultStatus.OPTIMAL, model.solve());
+		assertColdSolve(portfolio, model.getObjectiveValue());
+
+		model.updateNeedAmount(0, 95000);
+		assertEquals(MPSolver.ResultStatus.OPTIMAL, model.solve());
+
+		assertColdSolve(portfolio(95000, 0.05), model.getObjectiveValue());
+		assertEquals(80000, portfolio.needs.amount[0], 0);
+	}
+
+	@Test
+	public void rateEditMatchesColdSolve() {
+
+		Portfolio portfolio = portfolio(80000, 0.05);
+		IncrementalModel model = IncrementalModel.create(portfolio);
+		model.solve();
+
+		assertEquals(1, model.updateRate("A", 30, 0.01));
+		assertEquals(MPSolver.ResultStatus.OPTIMAL, model.solve());
+
+		assertColdSolve(portfolio(80000, 0.01), model.getObjectiveValue());
+		assertEquals(0.05, portfolio.investments.rate[0], 0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsUnavailableEngine() {
+		IncrementalModel.create(portfolio(80000, 0.05), "NO_SUCH_ENGINE");
+	}
+
+	static void assertColdSolve(Portfolio portfolio, double objectiveValue) {
+
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		LpSolution cold = new OrToolsLpSolver(IncrementalModel.DEFAULT_SOLVER)
+				.solve(LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs));
+
+		assertEquals(SolveStatus.OPTIMAL, cold.status);
+		assertEquals(cold.objectiveValue, objectiveValue, DELTA * Math.abs(cold.objectiveValue));
+	}
+
+	/**
+	 * A's maximum binds, so a change to the rent or to A's rate moves the allocation.
+	 */
+	static Portfolio portfolio(double rent, double rate) {
+		return PresolveTest.portfolio(new String[] { "A", "B" }, new double[] { 150000, 1e12 },
+				new String[] { "A", "A", "B" }, new double[] { rate, 0.03, 0.02 }, new long[] { 30, 90, 30 },
+				new String[] { "Rent", "Car" }, new double[] { rent, 60000 }, new long[] { 60, 200 });
+	}
+}
@@ -0,0 +1,79 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MonteCarloEngineTest {
+
+	static final int SCENARIOS = 4096;
+	static final long SEED = 17;
+
+	@Test
+	public void negativeShocksRaiseShortfall() {
+
+		// one point of volatility leaves a 5% rate positive, while a 0.5% rate turns negative about
+		// a third of the time and the need gets back less than it put in
+		MonteCarloResult safe = evaluate(0.05, 1e12);
+		MonteCarloResult exposed = evaluate(0.005, 1e12);
+
+		assertEquals(0, safe.getShortfallProbability(0), 0);
+		assertEquals(0.31, exposed.getShortfallProbability(0), 0.05);
+	}
+
+	@Test
+	public void bindingMaximumIsNotAShortfall() {
+
+		// the maximum is exactly the planned gain, so half the scenarios take the account over it
+		MonteCarloResult result = evaluate(0.05, 105000);
+
+		assertEquals(0, result.getShortfallProbability(0), 0);
+		assertEquals(105000, result.percentile(50), 105000 * 0.001);
+	}
+
+	@Test
+	public void reoptimizesThroughRowViewLikeSimplex() {
+
+		Portfolio portfolio = portfolio(0.01, 101000);
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+
+		MonteCarloResult simplex = engine(portfolio, pairs).reoptimize(new SimplexLpSolver(), 2048, SEED);
+		MonteCarloResult rowView = engine(portfolio, pairs)
+				.reoptimize(new ParametricSweepTest.RowViewSolver(), 2048, SEED);
+
+		assertTrue(simplex.getShortfallProbability(0) > 0);
+		for (int p = 0; p <= 100; p += 5) {
+			assertEquals("P" + p, simplex.percentile(p), rowView.percentile(p), 1e-6 * simplex.percentile(p));
+		}
+		assertEquals(simplex.getShortfallProbability(0), rowView.getShortfallProbability(0), 0);
+		assertEquals(simplex.getFailed(), rowView.getFailed());
+	}
+
+	static MonteCarloResult evaluate(double rate, double maximum) {
+
+		Portfolio portfolio = portfolio(rate, maximum);
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		LpSolution solution = new SimplexLpSolver()
+				.solve(LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs));
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		return engine(portfolio, pairs).evaluate(solution.values, SCENARIOS, SEED);
+	}
+
+	static MonteCarloEngine engine(Portfolio portfolio, EligiblePairs pairs) {
+
+		MonteCarloEngine engine = new MonteCarloEngine(portfolio, pairs, 2);
+		engine.setVolatility("A", 0.01);
+		engine.setVolatility("B", 0.01);
+		return engine;
+	}
+
+	/**
+	 * One need funded from A at the given rate, or from B at half of it.
+	 */
+	static Portfolio portfolio(double rate, double maximum) {
+		return PresolveTest.portfolio(new String[] { "A", "B" }, new double[] { maximum, 1e12 },
+				new String[] { "A", "B" }, new double[] { rate, rate / 2 }, new long[] { 30, 30 },
+				new String[] { "Need" }, new double[] { 100000 }, new long[] { 60 });
+	}
+}
@@ -0,0 +1,93 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class OptimizerServerTest {
+
+	@Test
+	public void writesNonFiniteGainAsNull() {
+
+		Portfolio portfolio = ScenarioTest.base();
+		for (double gain : new double[] { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY }) {
+			OptimizationResult result = new OptimizationResult("request", SolveStatus.NOT_SOLVED, gain, null, null, 0);
+			String json = OptimizerServer.toJson(portfolio, result);
+			assertTrue(json, json.contains("\"gain\":null,"));
+		}
+	}
+
+	@Test
+	public void sessionSolvesWithGivenPairs() {
+
+		Portfolio portfolio = ScenarioTest.base();
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+
+		OptimizationResult result = new OptimizationSession("request", portfolio, new SimplexLpSolver())
+				.setPairs(pairs).solve();
+
+		assertSame(pairs, result.getPairs());
+		assertEquals(SolveStatus.OPTIMAL, result.getStatus());
+	}
+
+	@Test
+	public void answersNeedsAgainstReferencePortfolio() throws IOException {
+
+		Portfolio reference = ScenarioTest.base();
+		OptimizerServer server = new OptimizerServer(reference, new LpSolver[] { new SimplexLpSolver() }, 0, 1000);
+		server.start();
+		try {
+			URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/optimize");
+			String first = post(url, "N,Rent,80000,60\nN,Car,60000,200\n");
+			String repeat = post(url, "N,Car,60000,200\nN,Rent,80000,60\n");
+
+			LpSolution expected = new SimplexLpSolver().solve(ParametricSweepTest.program(ParametricSweepTest.RATES));
+			assertTrue(first, first.startsWith("{\"status\":\"OPTIMAL\",\"engine\":\"JAVA\","));
+			assertEquals(expected.objectiveValue, gain(first), 1e-7 * expected.objectiveValue);
+			assertEquals(gain(first), gain(repeat), 0);
+		} finally {
+			server.stop();
+		}
+	}
+
+	static double gain(String json) {
+		int start = json.indexOf("\"gain\":") + "\"gain\":".length();
+		return Double.parseDouble(json.substring(start, json.indexOf(',', start)));
+	}
+
+	static String post(URL url, String body) throws IOException {
+
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		} finally {
+			out.close();
+		}
+		assertEquals(200, connection.getResponseCode());
+
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		InputStream in = connection.getInputStream();
+		try {
+			byte[] buffer = new byte[4096];
+			for (int read; (read = in.read(buffer)) > 0;) {
+				response.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return new String(response.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
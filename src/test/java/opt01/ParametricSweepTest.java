@@ -0,0 +1,106 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ParametricSweepTest {
+
+	static final double[] RATES = { 0.05, 0.03, 0.02 };
+
+	@Test
+	public void matchesFreshSolvesOnSimplex() {
+		assertSweepsMatchFreshSolves(new SimplexLpSolver());
+	}
+
+	@Test
+	public void matchesFreshSolvesThroughRowView() {
+		assertSweepsMatchFreshSolves(new RowViewSolver());
+	}
+
+	@Test
+	public void matchesFreshSolvesOnGlop() {
+
+		assumeTrue("OR-Tools native library not on java.library.path", SimplexLpSolverTest.orToolsAvailable());
+		assertSweepsMatchFreshSolves(new OrToolsLpSolver(BackendSelector.LP_SOLVER));
+	}
+
+	/**
+	 * Sweeps the rate of two products; every point must match a program built from scratch with
+	 * that rate, which catches a batch copy that keeps solving with its first point's coefficients.
+	 */
+	static void assertSweepsMatchFreshSolves(LpSolver solver) {
+
+		double[] values = ParametricSweep.range(0, 0.08, 9);
+		for (int row : new int[] { 0, 2 }) {
+			SweepResult result = new ParametricSweep(program(RATES), solver, 1)
+					.sweep(ParametricSweep.rate(row), values);
+
+			for (int p = 0; p < values.length; p++) {
+				double[] rates = RATES.clone();
+				rates[row] = values[p];
+				LpSolution fresh = solver.solve(program(rates));
+
+				String point = "row " + row + " at " + values[p];
+				assertEquals(point, fresh.status, result.getStatus(p));
+				assertEquals(point, fresh.objectiveValue, result.getObjectiveValue(p),
+						1e-7 * Math.max(1, Math.abs(fresh.objectiveValue)));
+			}
+		}
+	}
+
+	/**
+	 * A's maximum binds, so the gains in its account row shape the allocation.
+	 */
+	static LinearProgram program(double[] rates) {
+
+		Portfolio portfolio = PresolveTest.portfolio(new String[] { "A", "B" }, new double[] { 150000, 1e12 },
+				new String[] { "A", "A", "B" }, rates, new long[] { 30, 90, 30 },
+				new String[] { "Rent", "Car" }, new double[] { 80000, 60000 }, new long[] { 60, 200 });
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		return LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+	}
+
+	/**
+	 * Reads the model through the row view the way {@link BulkModelBuilder} hands it to OR-Tools,
+	 * and solves it with the simplex, so the row view is checked without the native library.
+	 */
+	static class RowViewSolver implements LpSolver {
+
+		@Override
+		public String name() {
+			return "row view";
+		}
+
+		@Override
+		public LpSolution solve(LinearProgram lp) {
+
+			lp.indexRows();
+			LinearProgram fromRows = lp.copy();
+			int nonZeros = lp.nonZeros();
+			fromRows.columnStart = new int[lp.numVariables + 1];
+			fromRows.rowIndex = new int[nonZeros];
+			fromRows.value = new double[nonZeros];
+			fromRows.rowStart = null;
+
+			for (int k = 0; k < nonZeros; k++) {
+				fromRows.columnStart[lp.rowColumn[k] + 1]++;
+			}
+			for (int j = 0; j < lp.numVariables; j++) {
+				fromRows.columnStart[j + 1] += fromRows.columnStart[j];
+			}
+			int[] next = Arrays.copyOf(fromRows.columnStart, lp.numVariables);
+			for (int i = 0; i < lp.numConstraints; i++) {
+				for (int k = lp.rowStart[i]; k < lp.rowStart[i + 1]; k++) {
+					int slot = next[lp.rowColumn[k]]++;
+					fromRows.rowIndex[slot] = i;
+					fromRows.value[slot] = lp.value[lp.rowEntry[k]];
+				}
+			}
+			return new SimplexLpSolver().solve(fromRows);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PresolveTest {
+
+	static final double DELTA = 1e-7;
+
+	@Test
+	public void keepsCheaperProductWhenMaximumBinds() {
+
+		// funding the need at 5% would exceed the maximum, so part of it has to go at 1%
+		Portfolio portfolio = portfolio(new String[] { "A" }, new double[] { 102000 },
+				new String[] { "A", "A" }, new double[] { 0.05, 0.01 }, new long[] { 30, 30 },
+				new String[] { "Need" }, new double[] { 100000 }, new long[] { 60 });
+
+		Presolve presolve = Presolve.run(portfolio);
+
+		assertEquals(0, presolve.dominatedProducts);
+		assertEquals(102000, solveBothWays(portfolio, presolve), DELTA * 102000);
+	}
+
+	@Test
+	public void mergesNeedsSharingDueDate() {
+
+		Portfolio portfolio = portfolio(new String[] { "A", "B" }, new double[] { 150000, 1e12 },
+				new String[] { "A", "A", "A", "B", "B" }, new double[] { 0.05, 0.05, 0.03, 0.02, 0.01 },
+				new long[] { 30, 30, 90, 30, 180 },
+				new String[] { "Rent", "Tuition", "Car", "Roof" }, new double[] { 80000, 40000, 20000, 60000 },
+				new long[] { 60, 60, 200, 200 });
+
+		Presolve presolve = Presolve.run(portfolio);
+
+		// Rent and Tuition, Car and Roof share due dates. The second 5% product of A copies the first,
+		// and B can't reach its maximum, so its longer 1% product goes too; A's binding maximum keeps its 3%
+		assertEquals(2, presolve.getReduced().needs.size);
+		assertEquals(2, presolve.dominatedProducts);
+		assertEquals(3, presolve.getReduced().investments.size);
+		solveBothWays(portfolio, presolve);
+	}
+
+	@Test
+	public void dropsDominatedProductsOfSlackAccount() {
+
+		Portfolio portfolio = portfolio(new String[] { "A", "B" }, new double[] { 1e12, 1e12 },
+				new String[] { "A", "A", "A", "B" }, new double[] { 0.04, 0.03, 0.04, 0.02 },
+				new long[] { 30, 60, 90, 30 },
+				new String[] { "Need1", "Need2" }, new double[] { 10000, 20000 }, new long[] { 100, 400 });
+
+		Presolve presolve = Presolve.run(portfolio);
+
+		// a maximum that can't bind lets the shorter 4% product stand in for both longer ones
+		assertEquals(2, presolve.dominatedProducts);
+		solveBothWays(portfolio, presolve);
+	}
+
+	@Test
+	public void matchesUnreducedModelOnSampleWorkbook() throws IOException {
+
+		// straight from the workbook, so the tests never write a snapshot next to it under src/
+		Portfolio portfolio = StreamingWorkbookLoader.load(PortfolioSource.DATA_FILE_PATH);
+		solveBothWays(portfolio, Presolve.run(portfolio));
+	}
+
+	@Test
+	public void matchesUnreducedModelOnRandomPortfolios() {
+
+		Random random = new Random(7);
+		for (int trial = 0; trial < 20; trial++) {
+			int accounts = 1 + random.nextInt(4);
+			String[] accountNames = new String[accounts];
+			double[] maxima = new double[accounts];
+			for (int a = 0; a < accounts; a++) {
+				accountNames[a] = "Account" + a;
+				maxima[a] = random.nextBoolean() ? 1e12 : 20000 + 200000 * random.nextDouble();
+			}
+
+			int products = accounts + random.nextInt(12);
+			String[] productAccounts = new String[products];
+			double[] rates = new double[products];
+			long[] terms = new long[products];
+			for (int r = 0; r < products; r++) {
+				productAccounts[r] = accountNames[r < accounts ? r : random.nextInt(accounts)];
+				rates[r] = 0.01 * (1 + random.nextInt(5));
+				terms[r] = 30 * (1 + random.nextInt(4));
+			}
+
+			int needCount = 1 + random.nextInt(6);
+			String[] needNames = new String[needCount];
+			double[] amounts = new double[needCount];
+			long[] due = new long[needCount];
+			for (int c = 0; c < needCount; c++) {
+				needNames[c] = "Need" + c;
+				amounts[c] = 1000 + random.nextInt(50) * 1000;
+				due[c] = 120 + 30 * random.nextInt(3);
+			}
+
+			Portfolio portfolio = portfolio(accountNames, maxima, productAccounts, rates, terms, needNames, amounts, due);
+			solveBothWays(portfolio, Presolve.run(portfolio));
+		}
+	}
+
+	/**
+	 * Solves the portfolio as is and through the presolve, asserts both reach the same status and
+	 * gain and that the expanded allocation is feasible in the original model, and returns the gain.
+	 */
+	static double solveBothWays(Portfolio portfolio, Presolve presolve) {
+
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		LinearProgram lp = LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+		LpSolution full = new SimplexLpSolver().solve(lp);
+
+		Portfolio reduced = presolve.getReduced();
+		EligiblePairs reducedPairs = EligiblePairs.build(reduced.investments, reduced.needs);
+		LinearProgram reducedLp = LinearProgram.forAllocation(reduced.investments, reduced.needs, reducedPairs);
+		presolve.tightenBounds(reducedLp);
+		LpSolution presolved = new SimplexLpSolver().solve(reducedLp);
+
+		assertEquals(full.status, presolved.status);
+		if (!full.status.hasSolution()) {
+			return 0;
+		}
+		double tolerance = DELTA * Math.max(1, Math.abs(full.objectiveValue));
+		assertEquals(full.objectiveValue, presolved.objectiveValue, tolerance);
+
+		double[] allocation = presolve.expand(reducedPairs, presolved.values, pairs);
+		SimplexLpSolverTest.assertFeasible(lp, new LpSolution(SolveStatus.OPTIMAL, presolved.objectiveValue,
+				allocation, null, null, 0, SimplexLpSolver.class.getSimpleName()));
+		return full.objectiveValue;
+	}
+
+	static Portfolio portfolio(String[] accounts, double[] maxima, String[] productAccounts, double[] rates,
+			long[] terms, String[] needNames, double[] amounts, long[] due) {
+
+		HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+		InvestmentBook investments = new InvestmentBook();
+		for (int a = 0; a < accounts.length; a++) {
+			limits.put(accounts[a], new InvestmentLimits(accounts[a], 0, maxima[a]));
+			investments.setAccountLimits(investments.accountIdOf(accounts[a]), 0, maxima[a]);
+		}
+		for (int r = 0; r < rates.length; r++) {
+			investments.add(productAccounts[r], rates[r], terms[r]);
+		}
+		NeedBook needs = new NeedBook();
+		for (int c = 0; c < needNames.length; c++) {
+			needs.add(needNames[c], amounts[c], due[c]);
+		}
+		return new Portfolio(limits, needs, investments);
+	}
+}
@@ -0,0 +1,105 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ScenarioTest {
+
+	@Test
+	public void matchesFreshSolvesOnSimplex() {
+		assertSolveAllMatchesFreshSolves(new SimplexLpSolver());
+	}
+
+	@Test
+	public void matchesFreshSolvesThroughRowView() {
+		assertSolveAllMatchesFreshSolves(new ParametricSweepTest.RowViewSolver());
+	}
+
+	@Test
+	public void matchesFreshSolvesOnGlop() {
+
+		assumeTrue("OR-Tools native library not on java.library.path", SimplexLpSolverTest.orToolsAvailable());
+		assertSolveAllMatchesFreshSolves(new OrToolsLpSolver(BackendSelector.LP_SOLVER));
+	}
+
+	@Test
+	public void leavesBaseUntouched() {
+
+		Portfolio base = base();
+		double[] rates = base.investments.rate.clone();
+		double[] amounts = base.needs.amount.clone();
+
+		Scenario.solveAll(base, scenarios(base), new SimplexLpSolver(), 2);
+
+		assertEquals(Arrays.toString(rates), Arrays.toString(base.investments.rate));
+		assertEquals(Arrays.toString(amounts), Arrays.toString(base.needs.amount));
+	}
+
+	/**
+	 * Two workers share the scenarios, so each working program serves several of them in turn;
+	 * every result must match a program built from that scenario's own books.
+	 */
+	static void assertSolveAllMatchesFreshSolves(LpSolver solver) {
+
+		Portfolio base = base();
+		List<Scenario> scenarios = scenarios(base);
+		List<OptimizationResult> results = Scenario.solveAll(base, scenarios, solver, 2);
+
+		for (int s = 0; s < scenarios.size(); s++) {
+			Portfolio portfolio = materialize(scenarios.get(s));
+			EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+			LpSolution fresh = solver.solve(LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs));
+
+			OptimizationResult result = results.get(s);
+			assertEquals(result.getName(), fresh.status, result.getStatus());
+			assertEquals(result.getName(), fresh.objectiveValue, result.getObjectiveValue(),
+					1e-7 * Math.max(1, Math.abs(fresh.objectiveValue)));
+		}
+	}
+
+	static Portfolio base() {
+		return PresolveTest.portfolio(new String[] { "A", "B" }, new double[] { 150000, 1e12 },
+				new String[] { "A", "A", "B" }, new double[] { 0.05, 0.03, 0.02 }, new long[] { 30, 90, 30 },
+				new String[] { "Rent", "Car" }, new double[] { 80000, 60000 }, new long[] { 60, 200 });
+	}
+
+	static List<Scenario> scenarios(Portfolio base) {
+
+		Scenario higherRate = new Scenario("A 30 days at 8%", base).setRate("A", 30, 0.08);
+		Scenario lowerRate = new Scenario("A 30 days at 1%", base).setRate("A", 30, 0.01);
+		Scenario tighter = new Scenario("A up to 120000", base).setAccountLimits("A", 0, 120000);
+		Scenario biggerNeed = new Scenario("Rent 90000", base).setNeedAmount("Rent", 90000);
+		Scenario combined = higherRate.copy("combined").setRate("B", 30, 0.06).setNeedAmount("Car", 70000);
+		return Arrays.asList(higherRate, lowerRate, tighter, biggerNeed, combined, new Scenario("unchanged", base));
+	}
+
+	/**
+	 * The scenario's view of every product, limit and need written out as books of its own.
+	 */
+	static Portfolio materialize(Scenario scenario) {
+
+		Portfolio base = scenario.base;
+		HashMap<String, InvestmentLimits> limits = new HashMap<String, InvestmentLimits>();
+		InvestmentBook investments = new InvestmentBook();
+		for (int a = 0; a < base.investments.accountCount; a++) {
+			String name = base.investments.accountName[a];
+			limits.put(name, new InvestmentLimits(name, scenario.accountMin(a), scenario.accountMax(a)));
+			investments.setAccountLimits(investments.accountIdOf(name), scenario.accountMin(a), scenario.accountMax(a));
+		}
+		for (int r = 0; r < base.investments.size; r++) {
+			investments.add(base.investments.accountName[base.investments.accountId[r]], scenario.rate(r),
+					base.investments.term[r]);
+		}
+		NeedBook needs = new NeedBook();
+		for (int c = 0; c < base.needs.size; c++) {
+			needs.add(base.needs.name[c], scenario.needAmount(c), base.needs.daysUntilDue[c]);
+		}
+		return new Portfolio(limits, needs, investments);
+	}
+}
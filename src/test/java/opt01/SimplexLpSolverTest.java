@@ -0,0 +1,308 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class SimplexLpSolverTest {
+
+	static final double INF = Double.POSITIVE_INFINITY;
+	static final double DELTA = 1e-7;
+
+	@Test
+	public void solvesSmallMaximization() {
+
+		// max 3x + 5y, x <= 4, 2y <= 12, 3x + 2y <= 18: optimum at (2, 6)
+		LinearProgram lp = program(true, new double[] { 3, 5 },
+				new double[][] { { 1, 0 }, { 0, 2 }, { 3, 2 } },
+				new double[] { -INF, -INF, -INF }, new double[] { 4, 12, 18 },
+				new double[] { 0, 0 }, new double[] { INF, INF });
+
+		LpSolution solution = new SimplexLpSolver().solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		assertEquals(36, solution.objectiveValue, DELTA);
+		assertEquals(2, solution.values[0], DELTA);
+		assertEquals(6, solution.values[1], DELTA);
+		assertFeasible(lp, solution);
+	}
+
+	@Test
+	public void solvesEqualityRowsThroughPhaseOne() {
+
+		// min x + 2y + 3z, x + y + z = 10, x - y >= 2, x <= 5
+		LinearProgram lp = program(false, new double[] { 1, 2, 3 },
+				new double[][] { { 1, 1, 1 }, { 1, -1, 0 } },
+				new double[] { 10, 2 }, new double[] { 10, INF },
+				new double[] { 0, 0, 0 }, new double[] { 5, INF, INF });
+
+		LpSolution solution = new SimplexLpSolver().solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		// x = 5, y = 3, z = 2
+		assertEquals(17, solution.objectiveValue, DELTA);
+		assertFeasible(lp, solution);
+	}
+
+	@Test
+	public void reportsInfeasible() {
+
+		// x + y >= 5 with x, y in [0, 2]
+		LinearProgram lp = program(true, new double[] { 1, 1 },
+				new double[][] { { 1, 1 } },
+				new double[] { 5 }, new double[] { INF },
+				new double[] { 0, 0 }, new double[] { 2, 2 });
+
+		assertEquals(SolveStatus.INFEASIBLE, new SimplexLpSolver().solve(lp).status);
+	}
+
+	@Test
+	public void reportsInfeasibleCrossedBounds() {
+
+		LinearProgram lp = program(true, new double[] { 1 },
+				new double[][] { { 1 } },
+				new double[] { 3 }, new double[] { 1 },
+				new double[] { 0 }, new double[] { 10 });
+
+		assertEquals(SolveStatus.INFEASIBLE, new SimplexLpSolver().solve(lp).status);
+	}
+
+	@Test
+	public void reportsUnbounded() {
+
+		// max x + y, x - y <= 1, x and y non-negative
+		LinearProgram lp = program(true, new double[] { 1, 1 },
+				new double[][] { { 1, -1 } },
+				new double[] { -INF }, new double[] { 1 },
+				new double[] { 0, 0 }, new double[] { INF, INF });
+
+		assertEquals(SolveStatus.UNBOUNDED, new SimplexLpSolver().solve(lp).status);
+	}
+
+	@Test
+	public void terminatesOnBealesCyclingExample() {
+
+		// Beale (1955): Dantzig's rule with the first-row tie break cycles on this degenerate program
+		LinearProgram lp = program(false, new double[] { -0.75, 20, -0.5, 6 },
+				new double[][] { { 0.25, -8, -1, 9 }, { 0.5, -12, -0.5, 3 }, { 0, 0, 1, 0 } },
+				new double[] { -INF, -INF, -INF }, new double[] { 0, 0, 1 },
+				new double[] { 0, 0, 0, 0 }, new double[] { INF, INF, INF, INF });
+
+		LpSolution solution = new SimplexLpSolver(1000).solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		assertEquals(-1.25, solution.objectiveValue, DELTA);
+		assertFeasible(lp, solution);
+	}
+
+	@Test
+	public void solvesDegenerateAssignment() {
+
+		// 6 x 6 assignment with every cost equal: each vertex is massively degenerate
+		int size = 6;
+		double[] objective = new double[size * size];
+		double[][] rows = new double[2 * size][size * size];
+		double[] ones = new double[2 * size];
+		double[] upper = new double[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				objective[i * size + j] = 1;
+				rows[i][i * size + j] = 1;
+				rows[size + j][i * size + j] = 1;
+				upper[i * size + j] = INF;
+			}
+			ones[i] = 1;
+			ones[size + i] = 1;
+		}
+		LinearProgram lp = program(false, objective, rows, ones, ones, new double[size * size], upper);
+
+		LpSolution solution = new SimplexLpSolver(10_000).solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		assertEquals(size, solution.objectiveValue, DELTA);
+		assertFeasible(lp, solution);
+	}
+
+	@Test
+	public void respectsBothSidesOfRangedRows() {
+
+		double[][] rows = { { 1, 2 } };
+		double[] rowLower = { 1 };
+		double[] rowUpper = { 4 };
+		double[] lower = { 0, 0 };
+		double[] upper = { 3, INF };
+
+		// pushed against the top of the range: x = 3, y = 0.5
+		LinearProgram max = program(true, new double[] { 1, 1 }, rows, rowLower, rowUpper, lower, upper);
+		LpSolution top = new SimplexLpSolver().solve(max);
+		assertEquals(SolveStatus.OPTIMAL, top.status);
+		assertEquals(3.5, top.objectiveValue, DELTA);
+		assertFeasible(max, top);
+
+		// and against the bottom: y = 0.5, x = 0
+		LinearProgram min = program(false, new double[] { 1, 1 }, rows, rowLower, rowUpper, lower, upper);
+		LpSolution bottom = new SimplexLpSolver().solve(min);
+		assertEquals(SolveStatus.OPTIMAL, bottom.status);
+		assertEquals(0.5, bottom.objectiveValue, DELTA);
+		assertFeasible(min, bottom);
+	}
+
+	@Test
+	public void warmStartsFromFeasibleBasis() {
+
+		LinearProgram lp = program(true, new double[] { 3, 5 },
+				new double[][] { { 1, 0 }, { 0, 2 }, { 3, 2 } },
+				new double[] { -INF, -INF, -INF }, new double[] { 4, 12, 18 },
+				new double[] { 0, 0 }, new double[] { INF, INF });
+		SimplexLpSolver solver = new SimplexLpSolver();
+		LpSolution first = solver.solve(lp);
+		assertNotNull(first.basis);
+
+		// a new objective keeps the old basis primal feasible
+		LinearProgram changed = lp.copy();
+		changed.objective[0] = 5;
+		changed.objective[1] = 1;
+		LpSolution warm = solver.solve(changed, first);
+		LpSolution cold = solver.solve(changed);
+
+		assertEquals(SolveStatus.OPTIMAL, warm.status);
+		assertEquals(cold.objectiveValue, warm.objectiveValue, DELTA);
+		assertFeasible(changed, warm);
+		assertTrue(warm.iterations <= cold.iterations);
+	}
+
+	@Test
+	public void warmStartFromStaleBasisFallsBackToColdSolve() {
+
+		LinearProgram lp = program(true, new double[] { 3, 5 },
+				new double[][] { { 1, 0 }, { 0, 2 }, { 3, 2 } },
+				new double[] { -INF, -INF, -INF }, new double[] { 4, 12, 18 },
+				new double[] { 0, 0 }, new double[] { INF, INF });
+		SimplexLpSolver solver = new SimplexLpSolver();
+		LpSolution first = solver.solve(lp);
+
+		// shrinking the last row puts the old vertex (2, 6) outside it
+		LinearProgram changed = lp.copy();
+		changed.rowUpper[2] = 6;
+		changed.rowLower[0] = 1;
+		LpSolution warm = solver.solve(changed, first);
+		LpSolution cold = solver.solve(changed);
+
+		assertEquals(SolveStatus.OPTIMAL, warm.status);
+		assertEquals(cold.objectiveValue, warm.objectiveValue, DELTA);
+		assertFeasible(changed, warm);
+	}
+
+	@Test
+	public void ignoresBasisOfDifferentShape() {
+
+		LinearProgram small = program(true, new double[] { 1 },
+				new double[][] { { 1 } },
+				new double[] { -INF }, new double[] { 2 },
+				new double[] { 0 }, new double[] { INF });
+		LinearProgram lp = program(true, new double[] { 3, 5 },
+				new double[][] { { 1, 0 }, { 0, 2 }, { 3, 2 } },
+				new double[] { -INF, -INF, -INF }, new double[] { 4, 12, 18 },
+				new double[] { 0, 0 }, new double[] { INF, INF });
+		SimplexLpSolver solver = new SimplexLpSolver();
+
+		LpSolution solution = solver.solve(lp, solver.solve(small));
+
+		assertEquals(SolveStatus.OPTIMAL, solution.status);
+		assertEquals(36, solution.objectiveValue, DELTA);
+	}
+
+	@Test
+	public void matchesOrToolsOnSampleWorkbook() throws IOException {
+
+		assumeTrue("OR-Tools native library not on java.library.path", orToolsAvailable());
+
+		Portfolio portfolio = StreamingWorkbookLoader.load(PortfolioSource.DATA_FILE_PATH);
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		LinearProgram lp = LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+
+		LpSolution simplex = new SimplexLpSolver().solve(lp);
+		LpSolution glop = new OrToolsLpSolver(BackendSelector.LP_SOLVER).solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, glop.status);
+		assertEquals(SolveStatus.OPTIMAL, simplex.status);
+		assertEquals(glop.objectiveValue, simplex.objectiveValue, 1e-6 * Math.abs(glop.objectiveValue));
+		assertFeasible(lp, simplex);
+	}
+
+	static boolean orToolsAvailable() {
+		try {
+			System.loadLibrary("jniortools");
+			return true;
+		} catch (UnsatisfiedLinkError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * A program from dense rows, stored column by column like {@link LinearProgram#forAllocation}.
+	 */
+	static LinearProgram program(boolean maximize, double[] objective, double[][] rows, double[] rowLower,
+			double[] rowUpper, double[] lower, double[] upper) {
+
+		LinearProgram lp = new LinearProgram();
+		lp.maximize = maximize;
+		lp.numVariables = objective.length;
+		lp.objective = objective.clone();
+		lp.lower = lower.clone();
+		lp.upper = upper.clone();
+		lp.numConstraints = rows.length;
+		lp.rowLower = rowLower.clone();
+		lp.rowUpper = rowUpper.clone();
+		lp.rowName = new String[rows.length];
+
+		int nonZeros = 0;
+		for (double[] row : rows) {
+			for (double value : row) {
+				nonZeros += value != 0 ? 1 : 0;
+			}
+		}
+		lp.columnStart = new int[lp.numVariables + 1];
+		lp.rowIndex = new int[nonZeros];
+		lp.value = new double[nonZeros];
+		int k = 0;
+		for (int j = 0; j < lp.numVariables; j++) {
+			for (int i = 0; i < rows.length; i++) {
+				if (rows[i][j] != 0) {
+					lp.rowIndex[k] = i;
+					lp.value[k++] = rows[i][j];
+				}
+			}
+			lp.columnStart[j + 1] = k;
+		}
+		return lp;
+	}
+
+	static void assertFeasible(LinearProgram lp, LpSolution solution) {
+
+		double[] activity = new double[lp.numConstraints];
+		double objective = 0;
+		for (int j = 0; j < lp.numVariables; j++) {
+			double x = solution.values[j];
+			assertTrue("variable " + j + " = " + x + " below " + lp.lower[j], x >= lp.lower[j] - DELTA);
+			assertTrue("variable " + j + " = " + x + " above " + lp.upper[j], x <= lp.upper[j] + DELTA);
+			for (int k = lp.columnStart[j]; k < lp.columnStart[j + 1]; k++) {
+				activity[lp.rowIndex[k]] += lp.value[k] * x;
+			}
+			objective += lp.objective[j] * x;
+		}
+		for (int i = 0; i < lp.numConstraints; i++) {
+			double tolerance = DELTA * Math.max(1, Math.abs(activity[i]));
+			assertTrue("row " + i + " = " + activity[i] + " below " + lp.rowLower[i],
+					activity[i] >= lp.rowLower[i] - tolerance);
+			assertTrue("row " + i + " = " + activity[i] + " above " + lp.rowUpper[i],
+					activity[i] <= lp.rowUpper[i] + tolerance);
+		}
+		assertEquals(solution.objectiveValue, objective, DELTA * Math.max(1, Math.abs(objective)));
+	}
+}
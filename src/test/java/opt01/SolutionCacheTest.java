@@ -0,0 +1,67 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SolutionCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void keySeparatesSolverSettings() {
+
+		Portfolio portfolio = ScenarioTest.base();
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		String auto = BackendSelector.AUTO_BACKEND;
+		SolverConfig config = SolverConfig.DEFAULT.withBackend(auto);
+
+		String base = key(portfolio, pairs, config, true);
+		assertEquals(base, key(portfolio, pairs, SolverConfig.DEFAULT.withBackend(auto), true));
+		assertNotEquals(base, key(portfolio, pairs, new SolverConfig(auto, 0, 0.05, 0, null), true));
+		assertNotEquals(base, key(portfolio, pairs, config.withTimeLimit(250), true));
+		assertNotEquals(base, key(portfolio, pairs, new SolverConfig(auto, 0, 0, 4, null), true));
+		assertNotEquals(base, key(portfolio, pairs, config, false));
+		assertNotEquals(base, key(portfolio, pairs, config.withBackend(LpSolver.JAVA_BACKEND), true));
+		assertNotEquals(key(portfolio, pairs, config.withBackend(LpSolver.JAVA_BACKEND), true),
+				key(portfolio, pairs, config.withBackend(LpSolver.JAVA_BACKEND).withTimeLimit(250), true));
+	}
+
+	@Test
+	public void diskEntryKeepsFileAge() throws IOException, InterruptedException {
+
+		Portfolio portfolio = ScenarioTest.base();
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		SolutionCache.Fingerprint fingerprint = SolutionCache.fingerprint(portfolio, pairs, "JAVA");
+		File directory = folder.newFolder();
+
+		new SolutionCache(8, 2, directory.toPath()).store(fingerprint, new OptimizationResult("stored",
+				SolveStatus.OPTIMAL, 1, pairs, new double[pairs.nonZeros()], 0));
+		File file = new File(directory, fingerprint.getKey() + ".solution");
+		Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 1700));
+
+		// a restarted cache finds the file with 300 ms of its 2 s left
+		SolutionCache restarted = new SolutionCache(8, 2, directory.toPath());
+		assertNotNull(restarted.lookup("first", fingerprint, pairs, System.nanoTime()));
+		assertEquals(1, restarted.getDiskHits());
+
+		Thread.sleep(600);
+		assertNull(restarted.lookup("expired", fingerprint, pairs, System.nanoTime()));
+	}
+
+	static String key(Portfolio portfolio, EligiblePairs pairs, SolverConfig config, boolean presolve) {
+		return SolutionCache.fingerprint(portfolio, pairs,
+				SolutionCache.solverSettings(LpSolver.forConfig(config), presolve)).getKey();
+	}
+}
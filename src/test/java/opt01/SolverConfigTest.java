@@ -0,0 +1,30 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SolverConfigTest {
+
+	@Test
+	public void budgetSaturatesForLargeLimits() {
+
+		assertEquals(250_000_000L, SolverConfig.DEFAULT.withTimeLimit(250).budgetNanos());
+		assertEquals(Long.MAX_VALUE, SolverConfig.DEFAULT.withTimeLimit(Long.MAX_VALUE / 1000).budgetNanos());
+		assertEquals(Long.MAX_VALUE, SolverConfig.DEFAULT.withTimeLimit(0).budgetNanos());
+	}
+
+	@Test
+	public void tellsInProcessBackendsFromOrTools() {
+
+		for (String backend : new String[] { "JAVA", "java", "TRANSPORT", "TRANSPORT:AUTO" }) {
+			assertTrue(backend, SolverConfig.DEFAULT.withBackend(backend).inProcess());
+		}
+		for (String backend : new String[] { "AUTO", "GLOP", "cbc", "PDLP" }) {
+			assertFalse(backend, SolverConfig.DEFAULT.withBackend(backend).inProcess());
+		}
+		assertEquals("GLOP", SolverConfig.DEFAULT.withBackend("glop").orToolsEngine());
+	}
+}
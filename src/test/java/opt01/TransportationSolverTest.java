@@ -0,0 +1,137 @@
+package opt01;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TransportationSolverTest {
+
+	static final double DELTA = 1e-7;
+
+	@Test
+	public void matchesSimplexOnSingleRateAccounts() {
+
+		Random random = new Random(8);
+		int flowSolved = 0;
+		for (int trial = 0; trial < 40; trial++) {
+			Portfolio portfolio = randomPortfolio(random, true);
+			LinearProgram lp = program(portfolio);
+
+			LpSolution flow = new TransportationSolver(new SimplexLpSolver()).solve(lp);
+			LpSolution simplex = new SimplexLpSolver().solve(lp);
+
+			assertEquals(TransportationSolver.TRANSPORT_BACKEND, flow.engine);
+			assertEquals("trial " + trial, simplex.status, flow.status);
+			if (flow.status.hasSolution()) {
+				assertEquals("trial " + trial, simplex.objectiveValue, flow.objectiveValue,
+						DELTA * Math.max(1, Math.abs(simplex.objectiveValue)));
+				SimplexLpSolverTest.assertFeasible(lp, flow);
+				flowSolved++;
+			}
+		}
+		assertTrue(flowSolved > 20);
+	}
+
+	@Test
+	public void fillsAccountMinimumFirst() {
+
+		// B pays less, but its minimum has to be placed before A takes the rest
+		Portfolio portfolio = PresolveTest.portfolio(new String[] { "A", "B" }, new double[] { 1e12, 1e12 },
+				new String[] { "A", "B" }, new double[] { 0.05, 0.01 }, new long[] { 30, 30 },
+				new String[] { "Need" }, new double[] { 100000 }, new long[] { 60 });
+		portfolio.investments.setAccountLimits(portfolio.investments.findAccount("B"), 50500, 1e12);
+		LinearProgram lp = program(portfolio);
+
+		LpSolution flow = new TransportationSolver(new SimplexLpSolver()).solve(lp);
+
+		assertEquals(SolveStatus.OPTIMAL, flow.status);
+		assertEquals(52500 + 50500, flow.objectiveValue, DELTA * 103000);
+		SimplexLpSolverTest.assertFeasible(lp, flow);
+	}
+
+	@Test
+	public void fallsBackWhenAccountMixesRates() {
+
+		Random random = new Random(9);
+		for (int trial = 0; trial < 10; trial++) {
+			LinearProgram lp = program(randomPortfolio(random, false));
+
+			LpSolution solution = new TransportationSolver(new SimplexLpSolver()).solve(lp);
+
+			assertEquals(LpSolver.JAVA_BACKEND, solution.engine);
+		}
+	}
+
+	@Test
+	public void fallsBackWhenBoundsChanged() {
+
+		Portfolio portfolio = randomPortfolio(new Random(10), true);
+		LinearProgram lp = program(portfolio);
+		lp.upper[0] = 0.5;
+
+		assertEquals(LpSolver.JAVA_BACKEND, new TransportationSolver(new SimplexLpSolver()).solve(lp).engine);
+	}
+
+	@Test
+	public void namedBackendUsesFlowSolver() {
+
+		SolverConfig config = SolverConfig.DEFAULT.withBackend("TRANSPORT");
+		assertTrue(LpSolver.forConfig(config) instanceof TransportationSolver);
+		assertEquals(null, config.orToolsEngine());
+	}
+
+	static LinearProgram program(Portfolio portfolio) {
+		EligiblePairs pairs = EligiblePairs.build(portfolio.investments, portfolio.needs);
+		return LinearProgram.forAllocation(portfolio.investments, portfolio.needs, pairs);
+	}
+
+	/**
+	 * Accounts with a few products of different terms; with singleRate all products of an account
+	 * pay the same rate. Some accounts have a binding maximum or a minimum.
+	 */
+	static Portfolio randomPortfolio(Random random, boolean singleRate) {
+
+		int accounts = 1 + random.nextInt(4);
+		String[] accountNames = new String[accounts];
+		double[] maxima = new double[accounts];
+		double[] accountRate = new double[accounts];
+		for (int a = 0; a < accounts; a++) {
+			accountNames[a] = "Account" + a;
+			maxima[a] = random.nextBoolean() ? 1e12 : 20000 + 200000 * random.nextDouble();
+			accountRate[a] = 0.01 * (1 + random.nextInt(5));
+		}
+
+		int products = accounts + 1 + random.nextInt(10);
+		String[] productAccounts = new String[products];
+		double[] rates = new double[products];
+		long[] terms = new long[products];
+		for (int r = 0; r < products; r++) {
+			int a = r < accounts ? r : random.nextInt(accounts);
+			productAccounts[r] = accountNames[a];
+			rates[r] = singleRate ? accountRate[a] : 0.01 * (1 + r % 5);
+			terms[r] = 30 * (1 + random.nextInt(4));
+		}
+
+		int needCount = 1 + random.nextInt(6);
+		String[] needNames = new String[needCount];
+		double[] amounts = new double[needCount];
+		long[] due = new long[needCount];
+		for (int c = 0; c < needCount; c++) {
+			needNames[c] = "Need" + c;
+			amounts[c] = 1000 + random.nextInt(50) * 1000;
+			due[c] = 120 + 30 * random.nextInt(3);
+		}
+
+		Portfolio portfolio = PresolveTest.portfolio(accountNames, maxima, productAccounts, rates, terms, needNames,
+				amounts, due);
+		for (int a = 0; a < accounts; a++) {
+			if (random.nextInt(4) == 0) {
+				portfolio.investments.setAccountLimits(a, 10000 * random.nextDouble(), maxima[a]);
+			}
+		}
+		return portfolio;
+	}
+}